@@ -0,0 +1,46 @@
+package bench;
+
+import hanabAI.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks a single decision of Agent21789272 early, midway and late in a game.
+ * The agent asked is the one that played the game up to the position,
+ * so the measurement is the cost of a decision rather than of catching up on the game so far.
+ **/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentBenchmark{
+
+  @Param({"1", "2", "3"})
+  long seed;
+
+  @Param({"4"})
+  int players;
+
+  @Param({"early", "mid", "late"})
+  String phase;
+
+  private Agent agent;
+  private hanabAI.State local;
+
+  @Setup
+  public void setup() throws IllegalActionException{
+    double fraction = phase.equals("early")?0.1:(phase.equals("mid")?0.5:0.9);
+    Fixtures.Position pos = Fixtures.play(seed, players, fraction);
+    int p = pos.state.getNextPlayer();
+    agent = pos.agents[p];
+    local = pos.state.hideHand(p);
+  }
+
+  @Benchmark
+  public Action doAction(){
+    return agent.doAction(local);
+  }
+}
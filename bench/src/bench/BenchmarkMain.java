@@ -0,0 +1,27 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite with the GC profiler, so every benchmark reports gc.alloc.rate.norm
+ * (bytes allocated per operation) next to its throughput.
+ * An optional argument restricts the run to benchmarks matching a regular expression,
+ * and a second argument names a file for the results in JSON, for comparison between releases.
+ **/
+public class BenchmarkMain{
+  public static void main(String[] args) throws RunnerException{
+    OptionsBuilder options = new OptionsBuilder();
+    options.include(args.length>0?args[0]:"bench\\..*Benchmark");
+    options.addProfiler(GCProfiler.class);
+    if(args.length>1){
+      options.resultFormat(org.openjdk.jmh.results.format.ResultFormatType.JSON);
+      options.result(args[1]);
+    }
+    Options opt = options.build();
+    new Runner(opt).run();
+  }
+}
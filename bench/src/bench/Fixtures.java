@@ -0,0 +1,81 @@
+package bench;
+
+import hanabAI.*;
+
+/**
+ * Builds the game states used by the benchmarks.
+ * Every state is reached by playing Agent21789272 on a deck with a fixed seed,
+ * so each run of the suite measures exactly the same positions.
+ **/
+class Fixtures{
+
+  /**The deck seeds used by every benchmark**/
+  static final long[] SEEDS = {1L, 2L, 3L};
+
+  /**A game state together with the deck it is being played with, and the actions the agents chose.**/
+  static class Position{
+    State state;
+    Deck deck;
+    Agent[] agents;
+    Action action;
+  }
+
+  /**
+   * Plays a game until the state at the given fraction of its length is reached.
+   * @param seed the deck seed
+   * @param players the number of players
+   * @param fraction how far through the game to stop, from 0 (first move) to 1 (last move)
+   * @return the position, with the action the next agent chooses in it
+   **/
+  static Position play(long seed, int players, double fraction) throws IllegalActionException{
+    int length = length(seed, players);
+    int target = Math.min(length-1, (int)(fraction*length));
+    Position pos = new Position();
+    pos.agents = agents(players);
+    pos.deck = new Deck(seed);
+    pos.state = new State(names(pos.agents), pos.deck);
+    while(true){
+      int p = pos.state.getNextPlayer();
+      pos.action = pos.agents[p].doAction(pos.state.hideHand(p));
+      if(pos.state.getOrder()==target) return pos;
+      pos.state = pos.state.nextState(pos.action, pos.deck);
+    }
+  }
+
+  //the number of moves in the game with the given seed
+  private static int length(long seed, int players) throws IllegalActionException{
+    return moves(seed, players).length;
+  }
+
+  /**
+   * Plays a whole game.
+   * @param seed the deck seed
+   * @param players the number of players
+   * @return the actions the agents chose, in the order they were made
+   **/
+  static Action[] moves(long seed, int players) throws IllegalActionException{
+    Agent[] agents = agents(players);
+    Deck deck = new Deck(seed);
+    State s = new State(names(agents), deck);
+    java.util.List<Action> moves = new java.util.ArrayList<Action>();
+    while(!s.gameOver()){
+      int p = s.getNextPlayer();
+      Action a = agents[p].doAction(s.hideHand(p));
+      moves.add(a);
+      s = s.nextState(a, deck);
+    }
+    return moves.toArray(new Action[moves.size()]);
+  }
+
+  static Agent[] agents(int players){
+    Agent[] agents = new Agent[players];
+    for(int i = 0; i<players; i++) agents[i] = new agents.Agent21789272();
+    return agents;
+  }
+
+  static String[] names(Agent[] agents){
+    String[] names = new String[agents.length];
+    for(int i = 0; i<names.length; i++) names[i] = agents[i].toString();
+    return names;
+  }
+}
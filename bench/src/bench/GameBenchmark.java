@@ -0,0 +1,31 @@
+package bench;
+
+import hanabAI.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks a complete game of BasicAgents through Hanabi.play(), from the deal to the final score.
+ **/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark{
+
+  @Param({"1", "2", "3"})
+  long seed;
+
+  @Param({"3"})
+  int players;
+
+  @Benchmark
+  public int basicAgentGame(){
+    Agent[] agents = new Agent[players];
+    for(int i = 0; i<players; i++) agents[i] = new agents.BasicAgent();
+    return new Hanabi(agents, seed).play();
+  }
+}
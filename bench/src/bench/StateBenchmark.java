@@ -0,0 +1,92 @@
+package bench;
+
+import hanabAI.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for the State transitions and queries that every game and every search agent depends on.
+ * The position is the middle of a four player game on a fixed deck, with at least one hint token left.
+ * nextState instead plays the moves of the whole game in turn, each extending the state the last one made,
+ * which is the path a game takes. After the last move the deck is dealt again, and that deal is part of the measurement.
+ **/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark{
+
+  @Param({"1", "2", "3"})
+  long seed;
+
+  private hanabAI.State state;
+  private Deck deck;
+  private Action action;
+  private Action hint;
+  //the game replayed by nextState
+  private String[] names;
+  private Deck dealt;
+  private Action[] moves;
+  private hanabAI.State game;
+  private Deck gameDeck;
+  private int move;
+
+  @Setup
+  public void setup() throws IllegalActionException{
+    //the first position from the middle of the game where a hint can be given
+    Fixtures.Position pos = Fixtures.play(seed, 4, 0.5);
+    for(double f = 0.55; pos.state.getHintTokens()==0 && f<1; f+=0.05) pos = Fixtures.play(seed, 4, f);
+    state = pos.state;
+    deck = pos.deck;
+    action = pos.action;
+    //a colour hint to the next player about their first card is legal while a hint token is left
+    int next = (state.getNextPlayer()+1)%4;
+    Card[] hand = state.getHand(next);
+    boolean[] cards = new boolean[hand.length];
+    for(int i = 0; i<hand.length; i++) cards[i] = hand[i]!=null && hand[i].getColour()==hand[0].getColour();
+    hint = new Action(state.getNextPlayer(), state.getName(state.getNextPlayer()), ActionType.HINT_COLOUR, next, cards, hand[0].getColour());
+    names = Fixtures.names(pos.agents);
+    dealt = new Deck(seed);
+    moves = Fixtures.moves(seed, 4);
+    move = moves.length;
+  }
+
+  @Benchmark
+  public hanabAI.State nextState() throws IllegalActionException{
+    if(move==moves.length){
+      gameDeck = dealt.copy();
+      game = new hanabAI.State(names, gameDeck);
+      move = 0;
+    }
+    game = game.nextState(moves[move++], gameDeck);
+    return game;
+  }
+
+  @Benchmark
+  public Object cloneState(){
+    return state.clone();
+  }
+
+  @Benchmark
+  public hanabAI.State hideHand() throws IllegalActionException{
+    return state.hideHand(state.getNextPlayer());
+  }
+
+  @Benchmark
+  public boolean legalAction() throws IllegalActionException{
+    return state.legalAction(hint);
+  }
+
+  @Benchmark
+  public java.util.Stack<Card> shuffledDeck(){
+    return Card.shuffledDeck();
+  }
+
+  @Benchmark
+  public Deck seededDeck(){
+    return new Deck(seed);
+  }
+}
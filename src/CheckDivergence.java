@@ -0,0 +1,44 @@
+import hanabAI.Agent;
+import hanabAI.AgentFactory;
+import hanabAI.DivergenceChecker;
+import hanabAI.DivergenceReport;
+import hanabAI.IllegalActionException;
+
+public class CheckDivergence {
+    public static void main(String[] args) throws IllegalActionException
+    {
+        // Usage: CheckDivergence <reference class> <candidate class> [games] [players] [first seed]
+        // Plays the reference agent's moves on seeded deals, asking the candidate for its move at every turn,
+        // and exits with status 1 if the candidate ever chooses differently, throws, or makes an illegal move.
+        if (args.length < 2) {
+            System.out.println("Usage: CheckDivergence <reference class> <candidate class> [games] [players] [first seed]");
+            System.exit(2);
+        }
+        int K_GAME_COUNT = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int K_PLAYER_COUNT = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        long K_FIRST_SEED = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        DivergenceChecker checker = new DivergenceChecker(factory(args[0]), factory(args[1]), K_PLAYER_COUNT);
+        DivergenceReport report = checker.run(K_FIRST_SEED, K_GAME_COUNT);
+        System.out.println(report);
+        System.exit(report.isEquivalent() ? 0 : 1);
+    }
+
+    private static AgentFactory factory(String className)
+    {
+        // Each agent is made with the class's no argument constructor.
+        try {
+            Class<? extends Agent> agentClass = Class.forName(className).asSubclass(Agent.class);
+            agentClass.getConstructor();
+            return (seat, players) -> {
+                try {
+                    return agentClass.getConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Cannot create " + className, e);
+                }
+            };
+        } catch (ClassNotFoundException | NoSuchMethodException | ClassCastException e) {
+            throw new IllegalArgumentException(className + " is not an agent with a public no argument constructor", e);
+        }
+    }
+}
@@ -1,38 +1,103 @@
 import agents.Agent21789272;
 import hanabAI.Agent;
+import hanabAI.GameListener;
+import hanabAI.GameMetrics;
+import hanabAI.GameLogWriter;
+import hanabAI.GameRecordWriter;
 import hanabAI.Hanabi;
+import hanabAI.ScoreStats;
+import hanabAI.Tournament;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 public class SimulateHanabi {
-    public static void main(String[] args)
+    public static void main(String[] args) throws IOException
     {
+        // Usage: SimulateHanabi [--metrics] [games] [players] [threads] [seed] [log file] [batch size] [move limit]
+        // With no arguments a single game is played and its log printed.
+        // --metrics also reports decision latency, engine timings and allocations per move.
+        // A log file ending in .rec is written as binary game records, - for no log, anything else as a text log.
+        // A batch size above 1 plays that many games in lockstep on each thread.
+        // A move limit in milliseconds makes a fallback move for any agent that overruns it.
+        if (args.length == 0) {
+            playLoggedGame();
+            return;
+        }
+
+        boolean K_METRICS = args[0].equals("--metrics");
+        if (K_METRICS)
+            args = Arrays.copyOfRange(args, 1, args.length);
+
+        int K_SIMULATION_COUNT = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int K_PLAYER_COUNT = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int K_THREAD_COUNT = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
         System.out.println("Simulating Hanabi Games...");
-        int K_SIMULATION_COUNT = 1;
-        int count = 0;
-        int totalScore = 0;
-
-        while (count < K_SIMULATION_COUNT) {
-            count++;
-            Agent[] agents = {
-                    new Agent21789272(),
-                    new Agent21789272(),
-                    new Agent21789272(),
-                    new Agent21789272()};
-
-            Hanabi game= new Hanabi(agents);
-            StringBuffer gameLog = new StringBuffer();
-            int result = game.play(gameLog);
-            StringBuffer resultLog = new StringBuffer("Game #")
-                    .append(count)
-                    .append(" Score: ")
-                    .append(result)
-                    .append("\n");
-            System.out.print(gameLog);
-            System.out.print(resultLog);
-            totalScore += result;
+        Tournament tournament = new Tournament(
+                (seat, players) -> new Agent21789272(), K_PLAYER_COUNT, K_SIMULATION_COUNT, K_THREAD_COUNT);
+        if (args.length > 3)
+            tournament.setSeed(Long.parseLong(args[3]));
+
+        Closeable logWriter = null;
+        GameMetrics metrics = K_METRICS ? new GameMetrics() : null;
+        tournament.setMetrics(metrics);
+
+        if (args.length > 5)
+            tournament.setBatchSize(Integer.parseInt(args[5]));
+        if (args.length > 6)
+            tournament.setMoveTimeLimit(Long.parseLong(args[6]), TimeUnit.MILLISECONDS);
+
+        if (args.length > 4 && !args[4].equals("-")) {
+            GameListener listener = args[4].endsWith(".rec")
+                    ? new GameRecordWriter(Paths.get(args[4]))
+                    : new GameLogWriter(Paths.get(args[4]));
+            tournament.setListener(listener);
+            logWriter = (Closeable) listener;
         }
 
+        long start = System.nanoTime();
+        ScoreStats stats = tournament.run();
+        long elapsed = System.nanoTime() - start;
+
+        if (logWriter != null)
+            logWriter.close();
+
+        StringBuffer finalResultLog = new StringBuffer("Simulation Complete. ")
+                .append(stats)
+                .append("\nSeed: ")
+                .append(tournament.getSeed())
+                .append("\nElapsed: ")
+                .append(elapsed / 1000000)
+                .append(" ms");
+        if (metrics != null)
+            finalResultLog.append("\n").append(metrics);
+        System.out.println(finalResultLog);
+    }
+
+    private static void playLoggedGame()
+    {
+        System.out.println("Simulating Hanabi Games...");
+        Agent[] agents = {
+                new Agent21789272(),
+                new Agent21789272(),
+                new Agent21789272(),
+                new Agent21789272()};
+
+        Hanabi game = new Hanabi(agents);
+        StringBuffer gameLog = new StringBuffer();
+        int result = game.play(gameLog);
+        StringBuffer resultLog = new StringBuffer("Game #1 Score: ")
+                .append(result)
+                .append("\n");
+        System.out.print(gameLog);
+        System.out.print(resultLog);
+
         StringBuffer finalResultLog = new StringBuffer("Simulation Complete. Average Score: ")
-                .append(totalScore/ (float) K_SIMULATION_COUNT);
+                .append((float) result);
         System.out.println(finalResultLog);
     }
 }
@@ -1,6 +1,7 @@
 package agents;
 import hanabAI.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 
 // ======================================================================================================
 // PUBLIC CLASS: Matrix Agent
@@ -14,6 +15,14 @@ public class Agent21789272 implements Agent {
     private static final float K_DISCARD_LIMIT = 0.85f;
     private static final float K_HINT_PLAY_BOOST = 1.00f;
 
+    // Rate the hints to each player on a separate core, when there are spare cores.
+    // This is only done when the agent is not itself running in a fork join pool, such as a Tournament's,
+    // since that pool's cores are busy with other games, and a join could run another game in the middle of this decision.
+    private static final boolean K_PARALLEL_HINTS = Runtime.getRuntime().availableProcessors() > 1;
+
+    // What each player has been told about their cards so far this game.
+    private PyHandTracker tracker = new PyHandTracker();
+
     public String toString(){
         return "Prince of Nigeria";
     }
@@ -24,7 +33,8 @@ public class Agent21789272 implements Agent {
 
             // Utility Agent Variables. Good to keep track of.
             int playerIndex = state.getNextPlayer();
-            PyState pyState = new PyState(state);
+            tracker.update(state);
+            PyState pyState = new PyState(state, tracker);
             List<PyCardMatrix> matrices = generateHandMatrix(pyState, playerIndex);
 
             PyCardMatrix pMatrix = null;  // The Matrix for the most playable card in our hand.
@@ -38,48 +48,24 @@ public class Agent21789272 implements Agent {
             assert pMatrix != null;
 
             // Voluntarily play a card.
+            ActionPool actions = state.getActionPool();
             float playLimit = state.getFuseTokens() == 1 ? K_SAFE_PLAY_LIMIT : K_NORMAL_PLAY_LIMIT;
             if (pMatrix.getPlayRating() >= playLimit) {
-                return new Action(playerIndex, toString(), ActionType.PLAY, pMatrix.handIndex);
+                return actions.play(playerIndex, pMatrix.handIndex);
             }
 
             // Voluntarily discard.
             if (state.getHintTokens() < 8 && dMatrix.getDiscardRating() >= K_DISCARD_LIMIT) {
-                return new Action(playerIndex, toString(), ActionType.DISCARD, dMatrix.handIndex);
+                return actions.discard(playerIndex, dMatrix.handIndex);
             }
 
             // Give hint to another player.
             if (state.getHintTokens() > 0) {
-                List<PyHint> hints = getValidHintCommands(pyState, playerIndex);
-                PyHint hint = getBestHint(hints);
-
-                // Generate the action for this hint.
-                Card[] targetHand = state.getHand(hint.targetIndex);
-                boolean[] hintCards = new boolean[targetHand.length];
-                for (int i = 0; i < targetHand.length; i++)
-                {
-                    Card card = targetHand[i];
-                    if (card == null)
-                        continue;
-
-                    hintCards[i] = false;
-
-                    if (hint.colour != null && hint.colour == card.getColour())
-                        hintCards[i] = true;
-
-                    if (hint.value > 0 && hint.value == card.getValue())
-                        hintCards[i] = true;
-                }
-
-                ActionType hintType = hint.colour == null ? ActionType.HINT_VALUE : ActionType.HINT_COLOUR;
-                if (hint.colour == null)
-                    return new Action(playerIndex, toString(), hintType, hint.targetIndex, hintCards, hint.value);
-                else
-                    return new Action(playerIndex, toString(), hintType, hint.targetIndex, hintCards, hint.colour);
+                return getHintAction(state, pyState, playerIndex);
             }
 
             // Forced to discard.
-            return new Action(playerIndex, toString(), ActionType.DISCARD, dMatrix.handIndex);
+            return actions.discard(playerIndex, dMatrix.handIndex);
 
         } catch(IllegalActionException e){
             e.printStackTrace();
@@ -87,6 +73,54 @@ public class Agent21789272 implements Agent {
         }
     }
 
+    private Action getHintAction(State state, PyState pyState, int playerIndex) throws IllegalActionException {
+        List<PyHint> hints = getValidHintCommands(pyState, playerIndex);
+        PyHint hint = getBestHint(hints);
+
+        // Generate the action for this hint.
+        List<Card> targetHand = state.handView(hint.targetIndex);
+        int hintMask = 0;
+        for (int i = 0; i < targetHand.size(); i++)
+        {
+            Card card = targetHand.get(i);
+            if (card == null)
+                continue;
+
+            if (hint.colour != null && hint.colour == card.getColour())
+                hintMask |= 1 << i;
+
+            if (hint.value > 0 && hint.value == card.getValue())
+                hintMask |= 1 << i;
+        }
+
+        ActionPool actions = state.getActionPool();
+        if (hint.colour == null)
+            return actions.hintValue(playerIndex, hint.targetIndex, hint.value, hintMask);
+        else
+            return actions.hintColour(playerIndex, hint.targetIndex, hint.colour, hintMask);
+    }
+
+    // ======================================================================================================
+    // Access for Search Agents. These share this agent's tracking, so use one instance per seat.
+    // ======================================================================================================
+
+    int[] getPossibleMasks(State state) throws IllegalActionException {
+        // The cards each slot of the next player's hand could be, from what they have been told, as masks of card indexes.
+        int playerIndex = state.getNextPlayer();
+        tracker.update(state);
+        PyCard[] hand = tracker.getHands(state)[playerIndex];
+        int[] masks = new int[hand.length];
+        for (int i = 0; i < hand.length; i++)
+            masks[i] = PyCardUtil.getPossibleMask(hand[i].getObservedColour(), hand[i].getObservedValue(), hand[i].notColour, hand[i].notValue);
+        return masks;
+    }
+
+    Action getHintAction(State state) throws IllegalActionException {
+        // The hint this agent would give, if it were to give one.
+        tracker.update(state);
+        return getHintAction(state, new PyState(state, tracker), state.getNextPlayer());
+    }
+
     // ======================================================================================================
     // Analyzer and Matrix Generation Logic.
     // ======================================================================================================
@@ -96,7 +130,7 @@ public class Agent21789272 implements Agent {
         // Generate a PyCardMatrix for each card in hand, based on what we know.
         ArrayList<PyCardMatrix> matrices = new ArrayList<>();
         PyCard[] hand = state.hands[playerIndex];
-        Map<String, Integer> observedMap = generateObservationMap(state, playerIndex, -1);
+        PyCardCounter observedMap = generateObservationMap(state, playerIndex, -1);
 
         for (int i = 0; i < hand.length; i++)
         {
@@ -125,21 +159,15 @@ public class Agent21789272 implements Agent {
         return matrices;
     }
 
-    private Map<String, Integer> generateObservationMap(PyState state, int playerIndex, int offhandIndex)
+    private PyCardCounter generateObservationMap(PyState state, int playerIndex, int offhandIndex)
     {
         // Use all the information we can see to generate a list of all the possible remaining cards.
 
         PyCardCounter counter = PyCardCounter.newDeckCounter();
+        counter.subtract(state.discardCounter);
+        counter.subtract(state.fireworkCounter);
 
-        for (Card card : state.originalState.getDiscards())
-            counter.add(card.getColour(), card.getValue(), -1);
-
-        for (Colour colour : Colour.values()) {
-            for (Card card : state.originalState.getFirework(colour))
-                counter.add(card.getColour(), card.getValue(), -1);
-        }
-
-        int numberOfPlayers = state.originalState.getPlayers().length;
+        int numberOfPlayers = state.originalState.getPlayerCount();
         for (int i = 0; i < numberOfPlayers; i++)
         {
             if (i != playerIndex)
@@ -155,73 +183,19 @@ public class Agent21789272 implements Agent {
             }
         }
 
-        return new HashMap<>(counter.cardMap);
-    }
-
-    private float getProbability(PyState state, int playerIndex,
-                                 Colour colour, int value, Colour knownColour, int knownValue,
-                                 Set<Colour> notColour, Set<Integer> notValue, Map<String, Integer> observedMap)
-    {
-        // Get the probability of this Colour and Value combination for a card, given what we know.
-        PyCardCounter counter = new PyCardCounter();
-
-        if (observedMap == null) {
-            counter.cardMap = generateObservationMap(state, playerIndex, -1);
-        } else {
-            counter.cardMap  = new HashMap<>(observedMap);
-        }
-
-        // Eliminate Cards that we know it cannot be.
-        for (Colour ci : Colour.values()) {
-            for (int i = 1; i < 6; i ++)
-            {
-                if ((knownColour != null && knownColour != ci) || (knownValue > 0 && knownValue != i))
-                    counter.set(ci, i, 0);
-
-                if ((notColour != null && notColour.contains(ci)) || (notValue != null && notValue.contains(i)))
-                    counter.set(ci, i, 0);
-            }
-        }
-
-        int cardCount = counter.count(colour, value);
-        int totalCount = counter.totalCount();
-        if (totalCount == 0)
-            return 0.0f;
-
-        return (float) cardCount / (float) totalCount;
-    }
-
-    private float getPlayRating(PyState state, Colour colour, int value)
-    {
-        return state.isCardPlayable(colour, value) ? 1.0f : 0.0f;
-    }
-
-    private float getDiscardRating(PyState state, Colour colour, int value)
-    {
-        return state.getDiscardScore(colour, value);
+        return counter;
     }
 
     private PyCardMatrix getCardMatrix(PyState state, int playerIndex, Colour knownColour, int knownValue,
-                                       Set<Colour> notColour, Set<Integer> notValue, Map<String, Integer> observedMap)
+                                       Set<Colour> notColour, Set<Integer> notValue, PyCardCounter observedMap)
     {
-        PyCardMatrix matrix = new PyCardMatrix();
-
-        // For each possible card, work out its probability, play and discard rating.
-        for (Colour c : Colour.values())
-        {
-            for (int v = 1; v < 6; v ++)
-            {
-                PyCardStat stat = new PyCardStat();
-                stat.colour = c;
-                stat.value = v;
-                stat.playRating = getPlayRating(state, c, v);
-                stat.discardRating = getDiscardRating(state, c, v);
-                stat.probability = getProbability(
-                        state, playerIndex, c, v, knownColour, knownValue, notColour, notValue, observedMap);
-                matrix.add(stat);
-            }
-        }
+        if (observedMap == null)
+            observedMap = generateObservationMap(state, playerIndex, -1);
 
+        // Work out the probability of every possible card in one pass, and rate it against the board.
+        PyCardMatrix matrix = new PyCardMatrix();
+        int possibleMask = PyCardUtil.getPossibleMask(knownColour, knownValue, notColour, notValue);
+        matrix.compute(state, possibleMask, observedMap);
         return matrix;
     }
 
@@ -232,8 +206,9 @@ public class Agent21789272 implements Agent {
     private ArrayList<PyHint> getValidHintCommands(PyState state, int playerIndex)
     {
         ArrayList<PyHint> hints = new ArrayList<>();
+        ArrayList<ForkJoinTask<?>> ratings = new ArrayList<>();
 
-        int numberOfPlayers = state.originalState.getPlayers().length;
+        int numberOfPlayers = state.originalState.getPlayerCount();
         for (int i = 0; i < numberOfPlayers; i++)
         {
             if (i == playerIndex)
@@ -255,31 +230,47 @@ public class Agent21789272 implements Agent {
                     valueMap.add(card.value);
             }
 
+            ArrayList<PyHint> targetHints = new ArrayList<>();
             for (Colour c : colourMap)
-                hints.add(new PyHint(playerIndex, i, c, -1, state));
+                targetHints.add(new PyHint(playerIndex, i, c, -1, state));
 
             for (int v : valueMap)
-                hints.add(new PyHint(playerIndex, i, null, v, state));
+                targetHints.add(new PyHint(playerIndex, i, null, v, state));
+
+            hints.addAll(targetHints);
+            ratings.add(ForkJoinTask.adapt(() -> populateHintRatings(state, targetHints)));
         }
 
-        for (PyHint hint : hints)
-            populateHintRating(state, hint);
+        // The hints to different players only read the frozen state, so they can be rated at once in the common pool.
+        if (K_PARALLEL_HINTS && ratings.size() > 1 && !ForkJoinTask.inForkJoinPool())
+            ForkJoinTask.invokeAll(ratings);
+        else
+            for (ForkJoinTask<?> rating : ratings)
+                rating.invoke();
 
         return hints;
     }
 
-    private void populateHintRating(PyState state, PyHint hint)
+    private void populateHintRatings(PyState state, List<PyHint> targetHints)
+    {
+        // Hints to the same player share most of their matrices, so work them out once for all the hints.
+        PyMatrixCache cache = new PyMatrixCache();
+        for (PyHint hint : targetHints)
+            populateHintRating(state, hint, cache);
+    }
+
+    private void populateHintRating(PyState state, PyHint hint, PyMatrixCache cache)
     {
         PyCard[] hand = state.hands[hint.targetIndex];
-        Map<String, Integer> observedMap = generateObservationMap(state, hint.targetIndex, hint.playerIndex);
 
-        for (PyCard card : hand)
+        for (int i = 0; i < hand.length; i++)
         {
+            PyCard card = hand[i];
             if (card == null)
                 continue;
 
-            PyCardMatrix originalMatrix = getCardMatrix(
-                    state, hint.targetIndex, card.getObservedColour(), card.getObservedValue(), card.notColour, card.notValue, observedMap);
+            PyCardMatrix originalMatrix = getHintMatrix(
+                    state, hint, i, card.getObservedColour(), card.getObservedValue(), cache);
             PyCardMatrix postMatrix = originalMatrix;
 
             // Simulate Giving a Colour Hint.
@@ -288,8 +279,8 @@ public class Agent21789272 implements Agent {
                 if (!card.hasReceivedColourHint())
                     hint.registerEffect(card, state);
 
-                postMatrix = getCardMatrix(
-                        state, hint.targetIndex, hint.colour, card.getObservedValue(), card.notColour, card.notValue, observedMap);
+                postMatrix = getHintMatrix(
+                        state, hint, i, hint.colour, card.getObservedValue(), cache);
             }
 
             // Simulate Giving a Value Hint.
@@ -301,8 +292,8 @@ public class Agent21789272 implements Agent {
                         hint.vitalReveal ++;
                 }
 
-                postMatrix = getCardMatrix(
-                        state, hint.targetIndex, card.getObservedColour(), hint.value, card.notColour, card.notValue, observedMap);
+                postMatrix = getHintMatrix(
+                        state, hint, i, card.getObservedColour(), hint.value, cache);
             }
 
             float playGain = postMatrix.getPlayRating() - originalMatrix.getPlayRating();
@@ -321,10 +312,39 @@ public class Agent21789272 implements Agent {
         }
     }
 
+    private PyCardMatrix getHintMatrix(PyState state, PyHint hint, int handIndex, Colour knownColour, int knownValue,
+                                       PyMatrixCache cache)
+    {
+        // What a card has been told it is not stays the same through the decision, so the target, the slot and
+        // what it would be told are enough to find its matrix again.
+        PyCardMatrix matrix = cache.getMatrix(handIndex, knownColour, knownValue);
+        if (matrix != null)
+            return matrix;
+
+        PyCardCounter observedMap = cache.getObservedMap();
+        if (observedMap == null)
+        {
+            observedMap = generateObservationMap(state, hint.targetIndex, hint.playerIndex);
+            cache.putObservedMap(observedMap);
+        }
+
+        PyCard card = state.hands[hint.targetIndex][handIndex];
+        matrix = getCardMatrix(state, hint.targetIndex, knownColour, knownValue, card.notColour, card.notValue, observedMap);
+        cache.putMatrix(handIndex, knownColour, knownValue, matrix);
+        return matrix;
+    }
+
     private PyHint getBestHint(List<PyHint> hints)
     {
-        hints.sort(new PyHintComparator());
-        return hints.get(hints.size() - 1);
+        // The greatest hint, taking the last of any that compare equal, as the stable sort this replaces did.
+        PyHintComparator comparator = new PyHintComparator();
+        PyHint best = hints.get(0);
+        for (PyHint hint : hints)
+        {
+            if (comparator.compare(hint, best) >= 0)
+                best = hint;
+        }
+        return best;
     }
 }
 
@@ -338,13 +358,22 @@ class PyCard {
     int value = -1;
     int age = 0;
 
-    boolean sealed = false;
-
     private int valueHintCounter = 0;
     private int colourHintCounter = 0;
 
-    Set<Colour> notColour = new HashSet<>();
-    Set<Integer> notValue = new HashSet<>();
+    final Set<Colour> notColour;
+    final Set<Integer> notValue;
+
+    PyCard()
+    {
+        this(new HashSet<>(), new HashSet<>());
+    }
+
+    private PyCard(Set<Colour> notColour, Set<Integer> notValue)
+    {
+        this.notColour = notColour;
+        this.notValue = notValue;
+    }
 
     void receiveColourHint(Colour colour)
     {
@@ -367,6 +396,19 @@ class PyCard {
         notValue.add(value);
     }
 
+    PyCard seenAs(Card card)
+    {
+        // A copy of this card showing what it is, so the card itself only ever holds what its owner has been told.
+        // The copy lives for one decision, in which the hints are not changed, so it shares them with this card.
+        PyCard seen = new PyCard(notColour, notValue);
+        seen.colour = card.getColour();
+        seen.value = card.getValue();
+        seen.age = age;
+        seen.valueHintCounter = valueHintCounter;
+        seen.colourHintCounter = colourHintCounter;
+        return seen;
+    }
+
     boolean hasReceivedColourHint()
     {
         return colourHintCounter > 0;
@@ -386,9 +428,9 @@ class PyCard {
         return hasReceivedValueHint() ? value : -1;
     }
 
-    String key()
+    int index()
     {
-        return PyCardUtil.getKey(colour, value);
+        return PyCardUtil.getIndex(colour, value);
     }
 
     @Override
@@ -419,25 +461,42 @@ class PyCard {
 
 class PyCardMatrix {
 
-    private Map<String, PyCardStat> stats = new HashMap<>();
+    // The order the ratings are summed in. This is the order the earlier String-keyed matrix visited its cards,
+    // kept so that the float sums, and therefore the tie breaks between cards, are unchanged.
+    private static final int[] K_SUM_ORDER = {
+            9, 7, 8, 5, 6, 20, 21, 22, 0, 15, 23, 16, 24, 17, 18, 1, 13, 19, 2, 12, 3, 4, 14, 11, 10 };
+
+    // The probability of each card index, and the ratings it was computed against.
+    final float[] probabilities = new float[PyCardUtil.K_CARD_COUNT];
+    private float playDot = 0.0f;
+    private float discardDot = 0.0f;
+
     int handIndex = 0;
     int age = 0;
     float playRatingFactor = 1.0f;
 
-    void add(PyCardStat stat)
+    void compute(PyState state, int possibleMask, PyCardCounter observedMap)
     {
-        String key = PyCardUtil.getKey(stat.colour, stat.value);
-        stats.put(key, stat);
+        // Mask the observed counts down to the possible cards, then take dot products with the state's ratings.
+        int totalCount = observedMap.totalCount(possibleMask);
+        float[] playRatings = state.getPlayRatings();
+        float[] discardRatings = state.getDiscardRatings();
+
+        playDot = 0.0f;
+        discardDot = 0.0f;
+        for (int i : K_SUM_ORDER)
+        {
+            int cardCount = (possibleMask >> i & 1) != 0 ? observedMap.count(i) : 0;
+            float probability = totalCount == 0 ? 0.0f : (float) cardCount / (float) totalCount;
+            probabilities[i] = probability;
+            playDot += probability * playRatings[i];
+            discardDot += probability * discardRatings[i];
+        }
     }
 
     float getPlayRating()
     {
-        float score = 0.0f;
-        for (String key : stats.keySet())
-        {
-            PyCardStat stat = stats.get(key);
-            score += stat.probability * stat.playRating;
-        }
+        float score = playDot;
 
         if (score < 1.0) {
             score *= playRatingFactor;
@@ -449,13 +508,53 @@ class PyCardMatrix {
 
     float getDiscardRating()
     {
-        float score = 0.0f;
-        for (String key : stats.keySet())
-        {
-            PyCardStat stat = stats.get(key);
-            score += stat.probability * stat.discardRating;
-        }
-        return score;
+        return discardDot;
+    }
+}
+
+// ======================================================================================================
+// CLASS: Matrix Cache | The card matrices worked out while rating the hints to one player in one decision.
+// ======================================================================================================
+
+class PyMatrixCache {
+
+    // The number of ways a card can be told its colour or value, including not at all.
+    private static final int K_COLOUR_STATES = PyCardUtil.K_COLOUR_COUNT + 1;
+    private static final int K_VALUE_STATES = PyCardUtil.K_VALUE_COUNT + 1;
+    private static final int K_MAX_HAND_SIZE = 5;
+
+    // What the hint target is known to see, from the point of view of the player giving the hints.
+    private PyCardCounter observedMap = null;
+
+    // The matrices of each card, by what it would know of its colour and value. They are only read,
+    // so their hand index and play factor are left as they are made.
+    private final PyCardMatrix[] matrices = new PyCardMatrix[K_MAX_HAND_SIZE * K_COLOUR_STATES * K_VALUE_STATES];
+
+    PyCardCounter getObservedMap()
+    {
+        return observedMap;
+    }
+
+    void putObservedMap(PyCardCounter observedMap)
+    {
+        this.observedMap = observedMap;
+    }
+
+    PyCardMatrix getMatrix(int handIndex, Colour knownColour, int knownValue)
+    {
+        return matrices[index(handIndex, knownColour, knownValue)];
+    }
+
+    void putMatrix(int handIndex, Colour knownColour, int knownValue, PyCardMatrix matrix)
+    {
+        matrices[index(handIndex, knownColour, knownValue)] = matrix;
+    }
+
+    private static int index(int handIndex, Colour knownColour, int knownValue)
+    {
+        int colour = knownColour == null ? 0 : knownColour.ordinal() + 1;
+        int value = knownValue > 0 ? knownValue : 0;
+        return (handIndex * K_COLOUR_STATES + colour) * K_VALUE_STATES + value;
     }
 }
 
@@ -469,19 +568,22 @@ class PyState {
 
     // A mapping for card and board state analysis.
     private ArrayList<PyCard> playableCards = new ArrayList<>();
-    private Map<String, Boolean> playableCardMap = new HashMap<>();
-    private Map<Colour, Integer> playableNumberMap = new HashMap<>();
-    private Map<Colour, Boolean> blockedColourMap = new HashMap<>();
-    private Map<String, Integer> visibleMap = PyCardCounter.getEmptyMap();
+    private boolean[] playableCardMap = new boolean[PyCardUtil.K_CARD_COUNT];
+    private int[] playableNumberMap = new int[PyCardUtil.K_COLOUR_COUNT];
+    private boolean[] blockedColourMap = new boolean[PyCardUtil.K_COLOUR_COUNT];
+    private PyCardCounter visibleMap = new PyCardCounter();
+    PyCardCounter discardCounter = new PyCardCounter();
+    PyCardCounter fireworkCounter = new PyCardCounter();
+
+    // The play and discard rating of every card index, against this board.
+    private float[] playRatings = new float[PyCardUtil.K_CARD_COUNT];
+    private float[] discardRatings = new float[PyCardUtil.K_CARD_COUNT];
     State originalState;
 
-    PyState(State state) throws IllegalActionException {
-        // Rebuild the frozen, information rich state from the game state.
+    PyState(State state, PyHandTracker tracker) {
+        // Freeze the information rich state from the game state and what we have tracked so far.
         originalState = state;
-        ArrayList<State> stateList = createStateChain(state);
-
-        hands = createHand(state);
-        updateActions(stateList, hands);
+        hands = tracker.getHands(state);
         calibrateMaps(state);
     }
 
@@ -491,26 +593,36 @@ class PyState {
 
     boolean isCardPlayable(PyCard card)
     {
-        return playableCardMap.containsKey(card.key());
+        return playableCardMap[card.index()];
     }
 
     boolean isCardPlayable(Colour colour, int value)
     {
-        return playableCardMap.containsKey(PyCardUtil.getKey(colour, value));
+        return playableCardMap[PyCardUtil.getIndex(colour, value)];
+    }
+
+    float[] getPlayRatings()
+    {
+        return playRatings;
+    }
+
+    float[] getDiscardRatings()
+    {
+        return discardRatings;
     }
 
     float getDiscardScore(Colour colour, int value)
     {
-        if (blockedColourMap.get(colour))
+        if (blockedColourMap[colour.ordinal()])
             return 1.0f;
 
         if (value == 5)
             return 0.0f;
 
-        if (playableNumberMap.containsKey(colour) && value < playableNumberMap.get(colour))
+        if (value < playableNumberMap[colour.ordinal()])
             return 1.0f;
 
-        if (visibleMap.get(PyCardUtil.getKey(colour, value)) >= 2)
+        if (visibleMap.count(colour, value) >= 2)
             return 0.5f;
 
         if (isCardPlayable(colour, value))
@@ -525,24 +637,53 @@ class PyState {
 
     private void calibrateMaps(State state)
     {
+        calculateCounters(state);
         calculatePlayableCards(state);
         for (PyCard card : playableCards) {
-            playableCardMap.put(card.key(), true);
-            playableNumberMap.put(card.colour, card.value);
+            playableCardMap[card.index()] = true;
+            playableNumberMap[card.colour.ordinal()] = card.value;
         }
         calculateBlockedMap(state);
         calculateVisibleMap(state);
+        calculateRatings();
+    }
+
+    private void calculateRatings()
+    {
+        for (Colour colour : Colour.values())
+        {
+            for (int v = 1; v < 6; v ++)
+            {
+                int index = PyCardUtil.getIndex(colour, v);
+                playRatings[index] = isCardPlayable(colour, v) ? 1.0f : 0.0f;
+                discardRatings[index] = getDiscardScore(colour, v);
+            }
+        }
+    }
+
+    private void calculateCounters(State state)
+    {
+        // Count the cards that have left play, so they only need to be counted once per turn.
+        for (Colour colour : Colour.values()) {
+            int height = state.getFireworkHeight(colour);
+            for (int v = 1; v < 6; v ++)
+            {
+                discardCounter.add(colour, v, state.getDiscardCount(colour, v));
+                if (v <= height)
+                    fireworkCounter.add(colour, v, 1);
+            }
+        }
     }
 
     private void calculatePlayableCards(State state)
     {
         // Populate the list of all cards playable this turn.
         for(Colour colour: Colour.values()) {
-            Stack<Card> firework = state.getFirework(colour);
-            if (firework.size() < 5) {
+            int height = state.getFireworkHeight(colour);
+            if (height < 5) {
                 PyCard card = new PyCard();
                 card.colour = colour;
-                card.value = firework.size() + 1;
+                card.value = height + 1;
                 playableCards.add(card);
             }
         }
@@ -550,17 +691,14 @@ class PyState {
 
     private void calculateVisibleMap(State state)
     {
-        int numberOfPlayers = state.getPlayers().length;
+        int numberOfPlayers = state.getPlayerCount();
 
         // Populate the hand with the current known value.
         for (int i = 0; i < numberOfPlayers; i ++)
         {
-            Card[] hand = state.getHand(i);
-            for (Card card : hand) {
-                if (card != null) {
-                    String key = PyCardUtil.getKey(card);
-                    visibleMap.put(key, visibleMap.get(key) + 1);
-                }
+            for (Card card : state.handView(i)) {
+                if (card != null)
+                    visibleMap.add(card.getColour(), card.getValue(), 1);
             }
         }
     }
@@ -570,68 +708,57 @@ class PyState {
         // Returns a mapping of Colour to boolean, indicating whether or not this Colour is blocked from playing.
 
         // Initially no Colours are blocked.
-        for(Colour colour: Colour.values())
-            blockedColourMap.put(colour, false);
-
         // For each playable card...
         // Get the total number in the deck.
         // And check if the discard pile has depleted it.
-
-        Map<String, Integer> deckMap = PyCardCounter.getDeckMap();
         for (PyCard card : playableCards) {
-            int totalNumber = deckMap.get(card.key());
-
-            for (Card discardedCard : state.getDiscards())
-            {
-                if (PyCardUtil.getKey(discardedCard).equals(card.key())) {
-                    totalNumber--;
-                }
-
-                if (totalNumber <= 0)
-                    blockedColourMap.put(card.colour, true);
-            }
+            int totalNumber = PyCardCounter.getDeckCount(card.index()) - discardCounter.count(card.index());
+            if (totalNumber <= 0)
+                blockedColourMap[card.colour.ordinal()] = true;
         }
     }
+}
 
-    // ======================================================================================================
-    // Functions to recreate the hand and hint state given all previous actions.
-    // ======================================================================================================
+// ======================================================================================================
+// CLASS: Hand Tracker | Keeps the hint state of every card from turn to turn, one action at a time.
+// ======================================================================================================
 
-    private ArrayList<State> createStateChain(State state)
-    {
-        ArrayList<State> stateList = new ArrayList<>();
+class PyHandTracker {
 
-        // Add the current state to the list.
-        stateList.add(state);
+    private PyCard[][] hands;
+    private int order = 0;  // The number of actions applied so far.
+    private State last;     // The state of the last update, which identifies the game and the seat being tracked.
 
-        // Add all previous states to the list.
-        while (state.getOrder() > 0) {
-            state = state.getPreviousState();
-            stateList.add(state);
-        }
+    void update(State state) throws IllegalActionException {
+        // Start again for a new game, or for another seat, since each seat sees different cards.
+        int numberOfPlayers = state.getPlayerCount();
+        if (hands == null || !state.follows(last) || state.getObserver() != last.getObserver())
+            reset(numberOfPlayers);
+        last = state;
 
-        return stateList;
+        // Only the actions made since our last turn need to be applied.
+        for (; order < state.getOrder(); order++)
+            applyAction(state.getAction(order));
     }
 
-    private PyCard[][] createHand(State state)
+    PyCard[][] getHands(State state)
     {
-        int numberOfPlayers = state.getPlayers().length;
-        hands = new PyCard[numberOfPlayers][numberOfPlayers > 3 ? 4 : 5];
+        // Bind the tracked cards to what we can currently see of each hand.
+        int numberOfPlayers = hands.length;
+        PyCard[][] frozenHands = new PyCard[numberOfPlayers][];
 
-        // Populate the hand with the current known value.
         for (int i = 0; i < numberOfPlayers; i ++)
         {
-            Card[] stateHand = state.getHand(i);
-            PyCard[] hand = hands[i];
+            List<Card> stateHand = state.handView(i);
+            PyCard[] hand = new PyCard[stateHand.size()];
 
-            for (int j = 0; j < stateHand.length; j ++)
+            for (int j = 0; j < hand.length; j ++)
             {
-                PyCard pyCard = new PyCard();
-                Card stateCard = stateHand[j];
+                PyCard pyCard = hands[i][j];
+                Card stateCard = stateHand.get(j);
                 if (stateCard != null) {
                     // We can see the details of this card.
-                    pyCard.colour = stateCard.getColour();
-                    pyCard.value = stateCard.getValue();
+                    pyCard = pyCard.seenAs(stateCard);
 
                 } else if (state.getNextPlayer() != i)
                 {
@@ -639,59 +766,54 @@ class PyState {
                     pyCard = null;
                 }
 
-                // Copy the card into our frozen hand.
                 hand[j] = pyCard;
             }
+            frozenHands[i] = hand;
         }
-        return hands;
+        return frozenHands;
     }
 
-    private void updateActions(ArrayList<State> stateList, PyCard[][] hands) throws IllegalActionException {
-        // Step through the action chain to update the cards hint state.
-        for (State s : stateList) {
-            Action action = s.getPreviousAction();
-            if (action == null)
-                continue;
+    private void reset(int numberOfPlayers)
+    {
+        hands = new PyCard[numberOfPlayers][numberOfPlayers > 3 ? 4 : 5];
+        for (PyCard[] hand : hands)
+        {
+            for (int j = 0; j < hand.length; j ++)
+                hand[j] = new PyCard();
+        }
+        order = 0;
+    }
 
-            updateAge(hands);
+    private void applyAction(Action action) throws IllegalActionException {
+        updateAge();
 
-            if (action.getType() == ActionType.HINT_COLOUR || action.getType() == ActionType.HINT_VALUE)
-                updateHint(hands, action);
+        if (action.getType() == ActionType.HINT_COLOUR || action.getType() == ActionType.HINT_VALUE)
+            updateHint(action);
 
-            if (action.getType() == ActionType.DISCARD || action.getType() == ActionType.PLAY)
-                sealCard(hands, action);
-        }
+        if (action.getType() == ActionType.DISCARD || action.getType() == ActionType.PLAY)
+            replaceCard(action);
     }
 
-    private void updateAge(PyCard[][] hands)
+    private void updateAge()
     {
         for (PyCard[] hand : hands)
         {
             for (PyCard card : hand)
-            {
-                if (card != null && !card.sealed)
-                    card.age ++;
-            }
+                card.age ++;
         }
     }
 
-    private void updateHint(PyCard[][] hands, Action action) throws IllegalActionException {
+    private void updateHint(Action action) throws IllegalActionException {
         int playerIndex = action.getHintReceiver();
         boolean[] hintList = action.getHintedCards();
 
         PyCard[] hand = hands[playerIndex];
         for (int i = 0; i < hand.length; i++)
         {
-            PyCard card = hand[i];
-
-            // This hint is irrelevant to us right now.
-            if (card == null || card.sealed)
-                continue;
-
             if (hintList[i])
-                receiveHint(card, action);
+                receiveHint(hand[i], action);
             else
-                denyHint(card, action);
+                denyHint(hand[i], action);
         }
     }
 
@@ -709,13 +831,11 @@ class PyState {
             card.denyValue(action.getValue());
     }
 
-    private void sealCard(PyCard[][] hands, Action action) throws IllegalActionException {
-        int playerIndex = action.getPlayer();
-        int cardIndex = action.getCard();
-
-        PyCard card = hands[playerIndex][cardIndex];
-        if (card != null)
-            card.sealed = true;
+    private void replaceCard(Action action) throws IllegalActionException {
+        // The card has left the hand. Its replacement has been in the hand for this action.
+        PyCard card = new PyCard();
+        card.age = 1;
+        hands[action.getPlayer()][action.getCard()] = card;
     }
 }
 
@@ -726,46 +846,19 @@ class PyState {
 class PyCardCounter {
 
     // ======================================================================================================
-    // Static Methods. Helps to get reference collections.
+    // Static Methods. Helps to get reference counts.
     // ======================================================================================================
 
-    private static Map<String, Integer> _deckMap;
-    private static Map<String, Integer> _emptyMap;
+    private static final int[] _deckCounts = new int[PyCardUtil.K_CARD_COUNT];
 
-    static Map<String, Integer> getDeckMap()
-    {
-        // Create the deck map if it didn't exist yet.
-        if (_deckMap == null) {
-            _deckMap = new HashMap<>();
-            Card[] deck = Card.getDeck();
-            for (Card card : deck)
-            {
-                String key = PyCardUtil.getKey(card);
-                _deckMap.put(key, _deckMap.getOrDefault(key, 0) + 1);
-            }
-        }
-
-        // Return a copy of the deck map, if it already exists.
-        return new HashMap<>(_deckMap);
+    static {
+        for (Card card : Card.getDeck())
+            _deckCounts[PyCardUtil.getIndex(card)]++;
     }
 
-    static Map<String, Integer> getEmptyMap()
+    static int getDeckCount(int index)
     {
-        // Create the empty map if it didn't exist yet.
-        if (_emptyMap == null) {
-            _emptyMap = new HashMap<>();
-            for (Colour colour : Colour.values())
-            {
-                for (int v = 1; v < 6; v++)
-                {
-                    String key = PyCardUtil.getKey(colour, v);
-                    _emptyMap.put(key, 0);
-                }
-            }
-        }
-
-        // Return a copy of the empty map, if it already exists.
-        return new HashMap<>(_emptyMap);
+        return _deckCounts[index];
     }
 
     // ======================================================================================================
@@ -774,7 +867,7 @@ class PyCardCounter {
 
     static PyCardCounter newDeckCounter() {
         PyCardCounter counter = new PyCardCounter();
-        counter.cardMap = getDeckMap();
+        System.arraycopy(_deckCounts, 0, counter.counts, 0, PyCardUtil.K_CARD_COUNT);
         return counter;
     }
 
@@ -782,44 +875,52 @@ class PyCardCounter {
     // Class Implementation.
     // ======================================================================================================
 
-    Map<String, Integer> cardMap;
-
-    PyCardCounter() {
-        cardMap = getEmptyMap();
-    }
+    // The count of each card, indexed by PyCardUtil.getIndex.
+    private final int[] counts = new int[PyCardUtil.K_CARD_COUNT];
 
     void set(Colour colour, int value, int amount)
     {
-        set(PyCardUtil.getKey(colour, value), amount);
+        counts[PyCardUtil.getIndex(colour, value)] = amount;
     }
 
-    private void set(String key, int amount)
-    {
-        cardMap.put(key, amount);
-    }
     void add(Colour colour, int value, int amount)
     {
-        add(PyCardUtil.getKey(colour, value), amount);
+        counts[PyCardUtil.getIndex(colour, value)] += amount;
     }
-    private void add(String key, int amount)
+
+    void subtract(PyCardCounter other)
     {
-        cardMap.put(key, cardMap.get(key) + amount);
+        for (int i = 0; i < PyCardUtil.K_CARD_COUNT; i++)
+            counts[i] -= other.counts[i];
     }
+
     int count(Colour colour, int value)
     {
-        return count(PyCardUtil.getKey(colour, value));
+        return counts[PyCardUtil.getIndex(colour, value)];
     }
-    private int count(String key)
+
+    int count(int index)
     {
-        return cardMap.get(key);
+        return counts[index];
     }
 
     int totalCount()
     {
         // Count the total number of cards tracked in this counter.
         int count = 0;
-        for (String key : cardMap.keySet()) {
-            count += cardMap.get(key);
+        for (int c : counts)
+            count += c;
+        return count;
+    }
+
+    int totalCount(int mask)
+    {
+        // Count the cards whose index bit is set in the mask.
+        int count = 0;
+        for (int i = 0; mask != 0; i++, mask >>>= 1)
+        {
+            if ((mask & 1) != 0)
+                count += counts[i];
         }
         return count;
     }
@@ -863,10 +964,10 @@ class PyHint {
             distance ++;
             i ++;
 
-            if (i >= state.originalState.getPlayers().length)
+            if (i >= state.originalState.getPlayerCount())
                 i = 0;
         }
-        distance = state.originalState.getPlayers().length - distance;
+        distance = state.originalState.getPlayerCount() - distance;
     }
 
     void registerEffect(PyCard card, PyState state)
@@ -927,28 +1028,37 @@ class PyHintComparator implements Comparator<PyHint> {
 // ======================================================================================================
 
 class PyCardUtil {
-    static String getKey(Card card)
+
+    static final int K_COLOUR_COUNT = 5;
+    static final int K_VALUE_COUNT = 5;
+    static final int K_CARD_COUNT = K_COLOUR_COUNT * K_VALUE_COUNT;
+    static final int K_ALL_CARDS_MASK = (1 << K_CARD_COUNT) - 1;
+
+    static int getIndex(Card card)
     {
-        // Get the hash-key for a card for quick map lookups.
-        return card.getColour().toString() + card.getValue();
+        // Get the dense index of a card for array lookups.
+        return card.code();
     }
 
-    static String getKey(Colour color, int value)
+    static int getIndex(Colour colour, int value)
     {
-        // Get the hash-key for a card for quick map lookups.
-        return color.toString() + value;
+        // Get the dense index of a card for array lookups.
+        return colour.ordinal() * K_VALUE_COUNT + value - 1;
     }
-}
-
-// ======================================================================================================
-// CLASS: Card Stat | Collect the analytical stats of a card into one place.
-// ======================================================================================================
 
-class PyCardStat {
-    Colour colour;
-    int value;
-    float probability;
-    float discardRating;
-    float playRating;
+    static int getPossibleMask(Colour knownColour, int knownValue, Set<Colour> notColour, Set<Integer> notValue)
+    {
+        // A bit for each card index that is still possible, given what we know.
+        int mask = K_ALL_CARDS_MASK;
+        for (Colour ci : Colour.values()) {
+            for (int i = 1; i < 6; i ++)
+            {
+                if ((knownColour != null && knownColour != ci) || (knownValue > 0 && knownValue != i) ||
+                        (notColour != null && notColour.contains(ci)) || (notValue != null && notValue.contains(i)))
+                    mask &= ~(1 << getIndex(ci, i));
+            }
+        }
+        return mask;
+    }
 }
 
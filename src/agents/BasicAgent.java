@@ -31,7 +31,7 @@ public class BasicAgent implements Agent{
    * @param s the State of the game at the first action
    **/
   public void init(State s){
-    numPlayers = s.getPlayers().length;
+    numPlayers = s.getPlayerCount();
     if(numPlayers>3){
       colours = new Colour[4];
       values = new int[4];
@@ -90,13 +90,13 @@ public class BasicAgent implements Agent{
   //updates colours and values from hints received
   public void getHints(State s){
     try{
-      State t = (State) s.clone();
-      for(int i = 0; i<Math.min(numPlayers-1,s.getOrder());i++){
-        Action a = t.getPreviousAction();
+      Action[] recent = s.getPreviousActions(numPlayers-1);
+      for(int i = recent.length-1; i>=0; i--){
+        Action a = recent[i];
         if((a.getType()==ActionType.HINT_COLOUR || a.getType() == ActionType.HINT_VALUE) && a.getHintReceiver()==index){
-          boolean[] hints = t.getPreviousAction().getHintedCards();
-          for(int j = 0; j<hints.length; j++){
-            if(hints[j]){
+          int hints = a.getHintMask();
+          for(int j = 0; j<colours.length; j++){
+            if((hints>>j&1)==1){
               if(a.getType()==ActionType.HINT_COLOUR) 
                 colours[j] = a.getColour();
               else
@@ -104,7 +104,6 @@ public class BasicAgent implements Agent{
             }
           }
         } 
-        t = t.getPreviousState();
       }
     }
     catch(IllegalActionException e){e.printStackTrace();}
@@ -112,9 +111,9 @@ public class BasicAgent implements Agent{
 
   //returns the value of the next playable card of the given colour
   public int playable(State s, Colour c){
-    java.util.Stack<Card> fw = s.getFirework(c);
-    if (fw.size()==5) return -1;
-    else return fw.size()+1;
+    int height = s.getFireworkHeight(c);
+    if (height==5) return -1;
+    else return height+1;
   }
 
   //plays the first card known to be playable.
@@ -123,7 +122,7 @@ public class BasicAgent implements Agent{
       if(colours[i]!=null && values[i]==playable(s,colours[i])){
         colours[i] = null;
         values[i] = 0;
-        return new Action(index, toString(), ActionType.PLAY,i);
+        return s.getActionPool().play(index,i);
       }
     }
     return null;
@@ -136,7 +135,7 @@ public class BasicAgent implements Agent{
         if(colours[i]!=null && values[i]>0 && values[i]<playable(s,colours[i])){
           colours[i] = null;
           values[i] = 0;
-          return new Action(index, toString(), ActionType.DISCARD,i);
+          return s.getActionPool().discard(index,i);
         }
       }
     }
@@ -156,18 +155,18 @@ public class BasicAgent implements Agent{
           if(c!=null && c.getValue()==playable(s,c.getColour())){
             //flip coin
             if(Math.random()>0.5){//give colour hint
-              boolean[] col = new boolean[hand.length];
-              for(int k = 0; k< col.length; k++){
-                col[k]=c.getColour().equals((hand[k]==null?null:hand[k].getColour()));
+              int col = 0;
+              for(int k = 0; k< hand.length; k++){
+                if(hand[k]!=null && hand[k].getColour()==c.getColour()) col |= 1<<k;
               }
-              return new Action(index,toString(),ActionType.HINT_COLOUR,hintee,col,c.getColour());
+              return s.getActionPool().hintColour(index,hintee,c.getColour(),col);
             }
             else{//give value hint
-              boolean[] val = new boolean[hand.length];
-              for(int k = 0; k< val.length; k++){
-                val[k]=c.getValue() == (hand[k]==null?-1:hand[k].getValue());
+              int val = 0;
+              for(int k = 0; k< hand.length; k++){
+                if(hand[k]!=null && hand[k].getValue()==c.getValue()) val |= 1<<k;
               }
-              return new Action(index,toString(),ActionType.HINT_VALUE,hintee,val,c.getValue());
+              return s.getActionPool().hintValue(index,hintee,c.getValue(),val);
             }
           }
         }
@@ -184,7 +183,7 @@ public class BasicAgent implements Agent{
         int cardIndex = rand.nextInt(colours.length);
         colours[cardIndex] = null;
         values[cardIndex] = 0;
-        return new Action(index, toString(), ActionType.PLAY, cardIndex);
+        return s.getActionPool().play(index, cardIndex);
       }
     }
     return null;
@@ -197,7 +196,7 @@ public class BasicAgent implements Agent{
       int cardIndex = rand.nextInt(colours.length);
       colours[cardIndex] = null;
       values[cardIndex] = 0;
-      return new Action(index, toString(), ActionType.DISCARD, cardIndex);
+      return s.getActionPool().discard(index, cardIndex);
     }
     return null;
   }
@@ -216,19 +215,18 @@ public class BasicAgent implements Agent{
         Card c = hand[cardIndex];
 
         if(Math.random()>0.5){//give colour hint
-          boolean[] col = new boolean[hand.length];
-          for(int k = 0; k< col.length; k++){
-            col[k]=c.getColour().equals((hand[k]==null?null:hand[k].getColour()));
+          int col = 0;
+          for(int k = 0; k< hand.length; k++){
+            if(hand[k]!=null && hand[k].getColour()==c.getColour()) col |= 1<<k;
           }
-          return new Action(index,toString(),ActionType.HINT_COLOUR,hintee,col,c.getColour());
+          return s.getActionPool().hintColour(index,hintee,c.getColour(),col);
         }
         else{//give value hint
-          boolean[] val = new boolean[hand.length];
-          for(int k = 0; k< val.length; k++){
-            if (hand[k] == null) continue;
-            val[k]=c.getValue() == (hand[k]==null?-1:hand[k].getValue());
+          int val = 0;
+          for(int k = 0; k< hand.length; k++){
+            if(hand[k]!=null && hand[k].getValue()==c.getValue()) val |= 1<<k;
           }
-          return new Action(index,toString(),ActionType.HINT_VALUE,hintee,val,c.getValue());
+          return s.getActionPool().hintValue(index,hintee,c.getValue(),val);
         }
 
       }
@@ -0,0 +1,419 @@
+package agents;
+import hanabAI.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// ======================================================================================================
+// PUBLIC CLASS: Monte Carlo Agent
+// ======================================================================================================
+
+public class MonteCarloAgent implements DeadlineAgent {
+
+    // Control Constants.
+    private static final long K_DEFAULT_BUDGET_MILLIS = 50;
+
+    // Shared by every Monte Carlo agent, so that many agents in a tournament do not each start their own threads.
+    private static final ForkJoinPool K_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // The rule based agent tracks what we have been told, gives the possibility matrices, and picks our hints.
+    private final Agent21789272 policy = new Agent21789272();
+    private final SplittableRandom random = new SplittableRandom();
+    private final long budget;
+    private final int workers;
+    private long rollouts = 0;
+
+    public MonteCarloAgent() {
+        this(K_DEFAULT_BUDGET_MILLIS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param budgetMillis the time to search for each move, in milliseconds
+     * @param workers the number of rollout tasks to run at once for each move
+     */
+    public MonteCarloAgent(long budgetMillis, int workers) {
+        if (budgetMillis <= 0 || workers < 1)
+            throw new IllegalArgumentException("budget and workers must be positive");
+        this.budget = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.workers = workers;
+    }
+
+    public String toString(){
+        return "Monte Carlo";
+    }
+
+    /**
+     * @return the number of rollouts this agent has played to the end of the game, over all its moves
+     */
+    public long getRollouts() {
+        return rollouts;
+    }
+
+    @Override
+    public Action doAction(State state) {
+        return search(state, System.nanoTime() + budget);
+    }
+
+    @Override
+    public Action doAction(State state, long deadline) {
+        // Leave a tenth of the time remaining for returning the move.
+        long now = System.nanoTime();
+        return search(state, Math.min(now + budget, deadline - (deadline - now) / 10));
+    }
+
+    private Action search(State state, long stopTime) {
+        try {
+            // The rule based move is returned if the search cannot separate the candidates.
+            Action fallback = policy.doAction(state);
+            PySearchRoot root = new PySearchRoot(state, policy.getPossibleMasks(state));
+            if (root.candidates.length < 2)
+                return fallback;
+
+            // Run the rollouts until the time is up, then merge the results of every worker.
+            List<ForkJoinTask<PyRolloutWorker>> tasks = new ArrayList<>();
+            for (int i = 0; i < workers; i++)
+                tasks.add(K_POOL.submit(new PyRolloutWorker(root, random.split(), stopTime)));
+
+            int n = root.candidates.length;
+            double[] sums = new double[n];
+            double[] squares = new double[n];
+            long count = 0;
+            for (ForkJoinTask<PyRolloutWorker> task : tasks)
+            {
+                PyRolloutWorker worker = task.join();
+                for (int c = 0; c < n; c++)
+                {
+                    sums[c] += worker.sums[c];
+                    squares[c] += worker.squares[c];
+                }
+                count += worker.samples;
+            }
+            rollouts += count * n;
+            if (count == 0)
+                return fallback;
+
+            // Take the best average score, unless the rule based move is within two standard errors of it.
+            int best = 0;
+            for (int c = 1; c < n; c++)
+                best = sums[c] > sums[best] ? c : best;
+
+            int preferred = root.indexOf(fallback);
+            if (preferred >= 0) {
+                double mean = sums[best] / count;
+                double variance = Math.max(0.0, squares[best] / count - mean * mean);
+                if (sums[preferred] / count >= mean - 2 * Math.sqrt(variance / count))
+                    return fallback;
+            }
+
+            int code = root.candidates[best];
+            if (code == PySearchRoot.K_HINT)
+                return fallback.getType() == ActionType.HINT_COLOUR || fallback.getType() == ActionType.HINT_VALUE
+                        ? fallback : policy.getHintAction(state);
+            return state.getActionPool().get(code);
+
+        } catch(IllegalActionException e){
+            e.printStackTrace();
+            throw new RuntimeException("Something has gone very wrong");
+        }
+    }
+
+    // ======================================================================================================
+    // Rollout Policy. Every player sees their own cards, so this is a fast and optimistic estimate.
+    // ======================================================================================================
+
+    private static final Colour[] K_COLOURS = Colour.values();
+
+    static void rollout(CompactState s)
+    {
+        while (!s.gameOver())
+        {
+            int p = s.getNextPlayer();
+
+            // Play a card that fits the fireworks.
+            int slot = findPlayable(s, p);
+            if (slot >= 0) {
+                s.play(slot);
+                continue;
+            }
+
+            // Hint a teammate who holds a card that fits.
+            if (s.getHintTokens() > 0 && teammateCanPlay(s, p)) {
+                s.hint();
+                continue;
+            }
+
+            slot = s.getHintTokens() < 8 ? findDiscard(s, p) : -1;
+            if (slot >= 0)
+                s.discard(slot);
+            else if (s.getHintTokens() > 0)
+                s.hint();
+            else
+                return;  // An empty hand and no hint tokens, so nothing more can be scored.
+        }
+    }
+
+    private static int findPlayable(CompactState s, int player)
+    {
+        for (int i = 0; i < s.getHandSize(); i++)
+        {
+            int card = s.getCard(player, i);
+            if (card >= 0 && s.isPlayable(card))
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean teammateCanPlay(CompactState s, int player)
+    {
+        for (int q = 0; q < s.getPlayers(); q++)
+        {
+            if (q != player && findPlayable(s, q) >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    private static int findDiscard(CompactState s, int player)
+    {
+        // A card already played is the best discard, then a card with another copy left, then the first card.
+        int spare = -1;
+        int first = -1;
+        for (int i = 0; i < s.getHandSize(); i++)
+        {
+            int card = s.getCard(player, i);
+            if (card < 0)
+                continue;
+
+            if (card % 5 < s.getFireworkHeight(K_COLOURS[card / 5]))
+                return i;
+
+            if (spare < 0 && s.getDiscardCount(card) + 1 < copies(card))
+                spare = i;
+
+            if (first < 0)
+                first = i;
+        }
+        return spare >= 0 ? spare : first;
+    }
+
+    static int copies(int card)
+    {
+        int value = card % 5 + 1;
+        return value == 1 ? 3 : (value < 5 ? 2 : 1);
+    }
+}
+
+// ======================================================================================================
+// CLASS: Search Root | The position being searched, shared read only by every worker.
+// ======================================================================================================
+
+class PySearchRoot {
+
+    // The candidate code standing for every hint, since rollouts do not model what a hint tells.
+    static final int K_HINT = -1;
+
+    // Rollouts see every card, so a lost fuse costs them little. Plays less likely than this to fit are not tried.
+    static final float K_MIN_PLAY_CHANCE = 0.6f;
+
+    final CompactState state;
+    final int player;
+    final int[] candidates;
+    final int[] unseen = new int[CompactState.CODES];  // The cards in our hand or the deck, by card code.
+    final int[] slots;                                  // The slots of our hand still holding a card.
+    final PyHandSampler sampler;                        // Deals those slots, in the same order.
+
+    PySearchRoot(State state, int[] possibleMasks) throws IllegalActionException {
+        this.state = new CompactState(state);
+        player = state.getNextPlayer();
+        int handSize = this.state.getHandSize();
+
+        // Count the cards we cannot see.
+        for (int c = 0; c < CompactState.CODES; c++)
+            unseen[c] = MonteCarloAgent.copies(c) - this.state.getDiscardCount(c);
+        for (Colour colour : Colour.values())
+        {
+            for (int v = 1; v <= state.getFireworkHeight(colour); v++)
+                unseen[CompactState.code(colour, v)]--;
+        }
+        for (int p = 0; p < this.state.getPlayers(); p++)
+        {
+            for (int i = 0; p != player && i < handSize; i++)
+            {
+                if (this.state.getCard(p, i) >= 0)
+                    unseen[this.state.getCard(p, i)]--;
+            }
+        }
+
+        // Our slots that still hold a card, and what each could be.
+        int empty = emptySlots(state);
+        int count = 0;
+        int[] held = new int[handSize];
+        int[] masks = new int[handSize];
+        for (int i = 0; i < handSize; i++)
+        {
+            if ((empty >> i & 1) != 0)
+                continue;
+            masks[count] = possibleMasks[i];
+            held[count++] = i;
+        }
+        slots = Arrays.copyOf(held, count);
+        sampler = new PyHandSampler(unseen, Arrays.copyOf(masks, count));
+
+        // Every play and discard, and one candidate for all hints.
+        int[] moves = new int[2 * count + 1];
+        int n = 0;
+        for (int j = 0; j < count; j++)
+        {
+            if (playChance(j) >= K_MIN_PLAY_CHANCE)
+                moves[n++] = Action.encode(ActionType.PLAY, player, slots[j], 0, 0);
+        }
+        if (state.getHintTokens() < 8) {
+            for (int i : slots)
+                moves[n++] = Action.encode(ActionType.DISCARD, player, i, 0, 0);
+        }
+        if (state.getHintTokens() > 0)
+            moves[n++] = K_HINT;
+        candidates = Arrays.copyOf(moves, n);
+    }
+
+    private double playChance(int j)
+    {
+        // The chance that the jth card we hold would fit the fireworks.
+        double playable = 0.0;
+        for (int c = 0; c < CompactState.CODES; c++)
+        {
+            if (state.isPlayable(c))
+                playable += sampler.getProbability(j, c);
+        }
+        return playable;
+    }
+
+    private int emptySlots(State state)
+    {
+        // Once the deck is empty, every card we play or discard leaves its slot empty,
+        // starting with the move that drew the last card.
+        int empty = 0;
+        int finalAction = state.getFinalActionIndex();
+        if (finalAction < 0)
+            return 0;
+        for (int i = Math.max(0, finalAction - state.getPlayerCount()); i < state.getOrder(); i++)
+        {
+            Action action = state.getAction(i);
+            if (action.getPlayer() == player && (action.getType() == ActionType.PLAY || action.getType() == ActionType.DISCARD))
+            {
+                try {
+                    empty |= 1 << action.getCard();
+                } catch (IllegalActionException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return empty;
+    }
+
+    int indexOf(Action action) {
+        // The candidate standing for the given move.
+        boolean hint = action.getType() == ActionType.HINT_COLOUR || action.getType() == ActionType.HINT_VALUE;
+        int code = hint ? K_HINT : action.encode();
+        for (int i = 0; i < candidates.length; i++)
+        {
+            if (candidates[i] == code)
+                return i;
+        }
+        return -1;
+    }
+
+    static void apply(CompactState s, int code)
+    {
+        if (code == K_HINT)
+            s.hint();
+        else if ((code & 0x3) == ActionType.PLAY.ordinal())
+            s.play(code >> 2 & 0x7);
+        else
+            s.discard(code >> 2 & 0x7);
+    }
+}
+
+// ======================================================================================================
+// CLASS: Rollout Worker | Samples our hand and the deck, then plays every candidate out to the end.
+// ======================================================================================================
+
+class PyRolloutWorker extends RecursiveTask<PyRolloutWorker> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PySearchRoot root;
+    private final SplittableRandom random;
+    private final long stopTime;
+
+    // Scratch space, allocated once so that rollouts do not allocate.
+    private final CompactState sample;
+    private final CompactState work;
+    private final int[] remaining = new int[CompactState.CODES];
+    private final int[] hand;
+    private final byte[] deck = new byte[Deck.SIZE];
+
+    // The results for each candidate.
+    final double[] sums;
+    final double[] squares;
+    long samples = 0;
+
+    PyRolloutWorker(PySearchRoot root, SplittableRandom random, long stopTime)
+    {
+        this.root = root;
+        this.random = random;
+        this.stopTime = stopTime;
+        sample = root.state.copy();
+        work = root.state.copy();
+        hand = new int[root.slots.length];
+        sums = new double[root.candidates.length];
+        squares = new double[root.candidates.length];
+    }
+
+    @Override
+    protected PyRolloutWorker compute()
+    {
+        while (System.nanoTime() < stopTime)
+        {
+            sample.copyFrom(root.state);
+            deal();
+
+            // Every candidate is played on the same deal, so they are compared on equal terms.
+            for (int c = 0; c < root.candidates.length; c++)
+            {
+                work.copyFrom(sample);
+                PySearchRoot.apply(work, root.candidates[c]);
+                MonteCarloAgent.rollout(work);
+                int score = work.getScore();
+                sums[c] += score;
+                squares[c] += score * score;
+            }
+            samples++;
+        }
+        return this;
+    }
+
+    private void deal()
+    {
+        // Deal our hand with its exact chance, given what we have been told.
+        System.arraycopy(root.unseen, 0, remaining, 0, remaining.length);
+        root.sampler.sample(random, remaining, hand);
+        for (int j = 0; j < hand.length; j++)
+            sample.setCard(root.player, root.slots[j], hand[j]);
+
+        // The rest of the unseen cards make up the deck, in a random order.
+        int size = 0;
+        for (int c = 0; c < remaining.length; c++)
+        {
+            for (int k = 0; k < remaining[c]; k++)
+                deck[size++] = (byte) c;
+        }
+        for (int i = size - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            byte t = deck[i];
+            deck[i] = deck[j];
+            deck[j] = t;
+        }
+        sample.setDeck(deck, size);
+    }
+}
@@ -0,0 +1,271 @@
+package agents;
+import hanabAI.*;
+import java.util.*;
+import java.util.function.ObjDoubleConsumer;
+
+// ======================================================================================================
+// CLASS: Hand Sampler | Exact joint probabilities of the cards in our hand, which all share one pool.
+// ======================================================================================================
+
+class PyHandSampler {
+
+    // Cards are indexed by colour ordinal * 5 + value - 1, as by Card.code() and PyCardUtil.getIndex.
+    private static final int K_CARD_COUNT = Card.CODES;
+    private static final int K_ALL_CARDS_MASK = (1 << K_CARD_COUNT) - 1;
+
+    // The number of bits holding the remaining counts in a memo key. Each count is 0 to 3, in two bits per card.
+    private static final int K_COUNT_BITS = 2 * K_CARD_COUNT;
+
+    // The last few slots are counted directly rather than memoised, since most of the distinct pools are there.
+    private static final int K_DIRECT_SLOTS = 2;
+
+    // The weight of a group of slots drawing the same card, by the size of the group: (-1)^(g-1) (g-1)!
+    private static final long[] K_GROUP_WEIGHTS = { 0, 1, -1, 2, -6, 24 };
+
+    private final int[] masks;        // The cards each slot could be, as a mask of card indexes.
+    private final long[] projections; // The count bits that slots i and later can use, so equivalent pools share a key.
+    private final long counts;        // The remaining count of every card, packed two bits per card.
+    private final double[][] marginals;
+
+    // The memo: the number of ways to fill slots i and later from a pool, keyed by slot and packed counts.
+    // It is filled by the constructor and only read afterwards.
+    private long[] keys = new long[64];
+    private long[] weights = new long[64];
+    private int size = 0;
+    private boolean building = true;
+
+    PyHandSampler(int[] remaining, int[] possibleMasks)
+    {
+        masks = possibleMasks.clone();
+        counts = pack(remaining);
+        projections = new long[masks.length + 1];
+        computeProjections();
+
+        // Forget what we have been told if no hand fits it, so there is always something to sample.
+        if (getWeight() == 0)
+        {
+            Arrays.fill(masks, K_ALL_CARDS_MASK);
+            computeProjections();
+            keys = new long[64];
+            weights = new long[64];
+            size = 0;
+            getWeight();
+        }
+        building = false;
+        marginals = computeMarginals();
+    }
+
+    // ======================================================================================================
+    // Queries. The sampler is not changed by these, so it may be shared between threads.
+    // ======================================================================================================
+
+    long getWeight()
+    {
+        // The number of ordered ways to draw a hand that fits, or 0 if there are none.
+        return weight(0, counts & projections[0]);
+    }
+
+    double getProbability(int slot, int card)
+    {
+        return marginals[slot][card];
+    }
+
+    double getProbability(int[] cards)
+    {
+        // The exact chance of the whole hand, slot by slot.
+        double probability = 1.0;
+        long pool = counts & projections[0];
+        for (int i = 0; i < masks.length && probability > 0.0; i++)
+        {
+            long n = (masks[i] >> cards[i] & 1) != 0 ? pool >> 2 * cards[i] & 3 : 0;
+            long next = (pool - (1L << 2 * cards[i])) & projections[i + 1];
+            probability = n == 0 ? 0.0 : probability * n * weight(i + 1, next) / weight(i, pool);
+            pool = next;
+        }
+        return probability;
+    }
+
+    void sample(SplittableRandom random, int[] remaining, int[] cards)
+    {
+        // Draw a hand with its exact probability. The remaining counts given to the constructor are passed in,
+        // and are left holding the cards not drawn, which make up the deck.
+        if (getWeight() == 0)
+            throw new IllegalStateException("Too few cards remain to fill the hand");
+
+        long pool = counts & projections[0];
+        for (int i = 0; i < masks.length; i++)
+        {
+            long r = random.nextLong(weight(i, pool));
+            for (int m = masks[i]; m != 0; m &= m - 1)
+            {
+                int c = Integer.numberOfTrailingZeros(m);
+                long next = (pool - (1L << 2 * c)) & projections[i + 1];
+                if ((pool >> 2 * c & 3) != 0 && (r -= (pool >> 2 * c & 3) * weight(i + 1, next)) < 0)
+                {
+                    cards[i] = c;
+                    remaining[c]--;
+                    pool = next;
+                    break;
+                }
+            }
+        }
+    }
+
+    void enumerate(ObjDoubleConsumer<int[]> visitor)
+    {
+        // Visit every hand that fits with its probability. The array passed to the visitor is reused.
+        enumerate(0, counts & projections[0], 1.0, new int[masks.length], visitor);
+    }
+
+    private void enumerate(int slot, long pool, double probability, int[] cards, ObjDoubleConsumer<int[]> visitor)
+    {
+        if (slot == masks.length) {
+            visitor.accept(cards, probability);
+            return;
+        }
+
+        long total = weight(slot, pool);
+        for (int m = masks[slot]; m != 0; m &= m - 1)
+        {
+            int c = Integer.numberOfTrailingZeros(m);
+            long n = pool >> 2 * c & 3;
+            long next = (pool - (1L << 2 * c)) & projections[slot + 1];
+            if (n == 0 || weight(slot + 1, next) == 0)
+                continue;
+            cards[slot] = c;
+            enumerate(slot + 1, next, probability * n * weight(slot + 1, next) / total, cards, visitor);
+        }
+    }
+
+    // ======================================================================================================
+    // Counting Logic.
+    // ======================================================================================================
+
+    private long weight(int slot, long pool)
+    {
+        // The number of ordered ways to fill slots from this one on, from a pool projected for this slot.
+        if (masks.length - slot <= K_DIRECT_SLOTS)
+            return directWeight((1 << masks.length) - (1 << slot), pool);
+
+        long key = (long) slot << K_COUNT_BITS | pool;
+        int at = find(key);
+        if (keys[at] == key)
+            return weights[at];
+
+        long total = 0;
+        for (int m = masks[slot]; m != 0; m &= m - 1)
+        {
+            int c = Integer.numberOfTrailingZeros(m);
+            long n = pool >> 2 * c & 3;
+            if (n > 0)
+                total += n * weight(slot + 1, (pool - (1L << 2 * c)) & projections[slot + 1]);
+        }
+        if (building)
+            store(key, total);
+        return total;
+    }
+
+    private long directWeight(int slots, long pool)
+    {
+        // The number of ordered ways to fill a set of slots, without the memo. Sum over every way of grouping the slots,
+        // where each group counts the cards that fit all of its slots, times its weight. Groups drawing the same card
+        // cancel out to exactly the draws without replacement.
+        if (slots == 0)
+            return 1;
+
+        int first = slots & -slots;
+        int rest = slots ^ first;
+        long total = 0;
+        for (int others = rest; ; others = (others - 1) & rest)
+        {
+            // Every group holding the first slot, with the other slots grouped in turn.
+            int group = others | first;
+            int fitting = K_ALL_CARDS_MASK;
+            for (int g = group; g != 0; g &= g - 1)
+                fitting &= masks[Integer.numberOfTrailingZeros(g)];
+
+            long fits = 0;
+            for (; fitting != 0; fitting &= fitting - 1)
+                fits += pool >> 2 * Integer.numberOfTrailingZeros(fitting) & 3;
+
+            if (fits != 0)
+                total += K_GROUP_WEIGHTS[Integer.bitCount(group)] * fits * directWeight(rest ^ others, pool);
+
+            if (others == 0)
+                break;
+        }
+        return total;
+    }
+
+    private double[][] computeMarginals()
+    {
+        // The chance of each card in a slot is its count times the ways to fill the other slots from what is left.
+        double[][] result = new double[masks.length][K_CARD_COUNT];
+        long total = getWeight();
+        int all = (1 << masks.length) - 1;
+        for (int i = 0; i < masks.length && total > 0; i++)
+        {
+            for (int m = masks[i]; m != 0; m &= m - 1)
+            {
+                int c = Integer.numberOfTrailingZeros(m);
+                long n = counts >> 2 * c & 3;
+                if (n > 0)
+                    result[i][c] = (double) (n * directWeight(all & ~(1 << i), counts - (1L << 2 * c))) / total;
+            }
+        }
+        return result;
+    }
+
+    private void computeProjections()
+    {
+        projections[masks.length] = 0;
+        for (int i = masks.length - 1; i >= 0; i--)
+        {
+            projections[i] = projections[i + 1];
+            for (int m = masks[i]; m != 0; m &= m - 1)
+                projections[i] |= 3L << 2 * Integer.numberOfTrailingZeros(m);
+        }
+    }
+
+    private int find(long key)
+    {
+        // The position of the key in the memo, or of the empty entry where it would go.
+        int mask = keys.length - 1;
+        int at = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (keys[at] != 0 && keys[at] != key)
+            at = (at + 1) & mask;
+        return at;
+    }
+
+    private void store(long key, long weight)
+    {
+        // A key of 0 is the first slot with nothing left to draw, which find already answers with 0, so 0 marks an empty entry.
+        if (2 * (size + 1) > keys.length)
+        {
+            long[] oldKeys = keys;
+            long[] oldWeights = weights;
+            keys = new long[oldKeys.length * 2];
+            weights = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldKeys[i] != 0) {
+                    int at = find(oldKeys[i]);
+                    keys[at] = oldKeys[i];
+                    weights[at] = oldWeights[i];
+                }
+            }
+        }
+        int at = find(key);
+        keys[at] = key;
+        weights[at] = weight;
+        size++;
+    }
+
+    private static long pack(int[] remaining)
+    {
+        long packed = 0;
+        for (int c = 0; c < K_CARD_COUNT; c++)
+            packed |= (long) Math.max(0, Math.min(3, remaining[c])) << 2 * c;
+        return packed;
+    }
+}
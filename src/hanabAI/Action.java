@@ -22,6 +22,8 @@ public class Action{
   private Colour colour;
   //The value hinted, if the action is a value hint.
   private int value;
+  //The cards hinted at as a bitmask, with bit i set if cards[i] is true
+  private int hintMask;
 
   //common constructor for all actions
   private Action(int player, String playerName, ActionType type){
@@ -58,6 +60,7 @@ public class Action{
     this.hintee = hintReceiver;
     this.cards = cards;
     this.colour = hint;
+    this.hintMask = mask(cards);
   }
   
   /**Constructor to create Play or Discard actions
@@ -75,6 +78,15 @@ public class Action{
     this.hintee = hintReceiver;
     this.cards = cards;
     this.value = hint;
+    this.hintMask = mask(cards);
+  }
+
+  //packs the hinted cards into a bitmask
+  private static int mask(boolean[] cards){
+    int mask = 0;
+    if(cards!=null)
+      for(int i = 0; i<cards.length; i++) if(cards[i]) mask |= 1<<i;
+    return mask;
   }
 
   /**
@@ -120,6 +132,81 @@ public class Action{
     return cards.clone();
   }
 
+  /**
+   * gets the cards that are the subject of the hint as a bitmask, without copying the hinted cards.
+   * The number of cards in the hint is given by getHintLength().
+   * @return a mask with bit i set if and only if the ith card in the hintReceivers hand matches the hint
+   * @throws IllegalActionException if the action type is not HINT_COLOUR or HINT_VALUE
+   **/ 
+  public int getHintMask() throws IllegalActionException{
+    if(type != ActionType.HINT_COLOUR && type!= ActionType.HINT_VALUE) throw new IllegalActionException("Action is not a hint");
+    return hintMask;
+  }
+
+  /**
+   * Packs the action into 16 bits:
+   * bits 0-1 hold the ActionType ordinal,
+   * bits 2-4 the position of the card played or discarded, or the index of the player receiving the hint,
+   * bits 5-7 the Colour ordinal or the value hinted,
+   * bits 8-12 the hint mask, and bits 13-15 the index of the player.
+   * The code identifies the action within a game, so ActionPool can give a canonical Action for it,
+   * and State.nextState can be given the code in place of the Action.
+   * @return the code of the action
+   **/
+  public int encode(){
+    switch(type){
+      case PLAY: case DISCARD: return encode(type, player, card, 0, 0);
+      case HINT_COLOUR: return encode(type, player, hintee, colour.ordinal(), hintMask);
+      default: return encode(type, player, hintee, value, hintMask);
+    }
+  }
+
+  /**
+   * Packs the parts of an action into the code given by encode(), without creating the action.
+   * @param type the type of the action
+   * @param player the index of the player performing the action
+   * @param target the position of the card played or discarded, or the index of the player receiving a hint
+   * @param hint the ordinal of the colour or the value hinted, or 0 for a play or discard
+   * @param mask the cards hinted at as a bitmask, or 0 for a play or discard
+   * @return the code of the action
+   **/
+  public static int encode(ActionType type, int player, int target, int hint, int mask){
+    return type.ordinal() | (target&0x7)<<2 | (hint&0x7)<<5 | (mask&0x1F)<<8 | (player&0x7)<<13;
+  }
+
+  /**
+   * Rebuilds an action from the code given by encode().
+   * @param code the code of the action
+   * @param name the name of the player making the action
+   * @param handSize the number of cards in the hand of the player receiving a hint
+   * @return an action equal to the encoded action
+   * @throws IllegalActionException if the code does not describe an action
+   **/
+  public static Action decode(int code, String name, int handSize) throws IllegalActionException{
+    int player = code>>13&0x7;
+    int target = code>>2&0x7;
+    int hint = code>>5&0x7;
+    int mask = code>>8&0x1F;
+    ActionType type = ActionType.values()[code&0x3];
+    switch(type){
+      case PLAY: case DISCARD: return new Action(player, name, type, target);
+      default:
+        boolean[] cards = new boolean[handSize];
+        for(int i = 0; i<handSize; i++) cards[i] = (mask>>i&1)==1;
+        if(type==ActionType.HINT_VALUE) return new Action(player, name, type, target, cards, hint);
+        if(hint>=Colour.values().length) throw new IllegalActionException("No colour "+hint);
+        return new Action(player, name, type, target, cards, Colour.values()[hint]);
+    }
+  }
+
+  //the unchecked fields, so that State can test legality without exceptions or copies
+  int card(){return card;}
+  int hintee(){return hintee;}
+  int hintMask(){return hintMask;}
+  int hintLength(){return cards==null?-1:cards.length;}
+  Colour colour(){return colour;}
+  int value(){return value;}
+
   /**
    * gets the colour hinted
    * @return the colour hinted
@@ -145,21 +232,24 @@ public class Action{
    * @return a description of the action, depending on type
    * */
   public String toString(){
-    String ret;
+    StringBuilder ret = new StringBuilder(96);
+    ret.append("Player ").append(playerName).append("(").append(player).append(")");
     switch(type){
-      case PLAY: return "Player "+playerName+ "("+player+") plays the card at position "+card;
-      case DISCARD: return "Player "+playerName+ "("+player+") discards the card at position "+card;
+      case PLAY: return ret.append(" plays the card at position ").append(card).toString();
+      case DISCARD: return ret.append(" discards the card at position ").append(card).toString();
       case HINT_COLOUR: 
-       ret = "Player "+playerName+ "("+player+") gives the hint: \"Player "+hintee+", cards at position"+(cards.length>1?"s":"");
-       for(int i=0; i<cards.length; i++)ret += (cards[i]?" "+i:"");
-       ret+= " have colour "+colour+"\"";
-       return ret;
+       appendHint(ret);
+       return ret.append(" have colour ").append(colour).append("\"").toString();
       case HINT_VALUE: 
-       ret = "Player "+playerName+ "("+player+") gives the hint: \"Player "+hintee+", cards at position"+(cards.length>1?"s":"");
-       for(int i=0; i<cards.length; i++)ret += (cards[i]?" "+i:"");
-       ret+= " have value "+value+"\"";
-       return ret;
+       appendHint(ret);
+       return ret.append(" have value ").append(value).append("\"").toString();
     }
     return "";
   }
+
+  //the common start of the description of a hint
+  private void appendHint(StringBuilder ret){
+    ret.append(" gives the hint: \"Player ").append(hintee).append(", cards at position").append(cards.length>1?"s":"");
+    for(int i=0; i<cards.length; i++) if(cards[i]) ret.append(" ").append(i);
+  }
 }
@@ -0,0 +1,114 @@
+package hanabAI;
+
+/**
+ * An append-only record of the actions made in a game, shared by every state of the game.
+ * Each action is kept both as the Action the agent made and as a primitive code (see Action.encode()),
+ * and a state only holds the log and its order, which is the number of actions that led to it.
+ * This gives constant time access to any earlier action, without walking back through previous states.
+ * If a state that is not the latest state of its log is extended, for example by a search agent,
+ * the log is copied up to that state, so states never see actions from another line of play.
+ * The log also keeps the card each action used and whether it misplayed or earned a hint, which is all a state needs
+ * to rebuild the state before it, so states do not hold references to their previous states.
+ * Appends are synchronized, and reads are lock free: an entry is written before the size that covers it is published.
+ **/
+class ActionLog{
+
+  /**The effects of an action that can not be seen from the state it led to, kept so the state before can be rebuilt**/
+  static final byte MISPLAY = 1, BONUS_HINT = 2;
+
+  /**The primitive code of each action**/
+  private volatile int[] codes;
+  /**Each action, as made by the agent**/
+  private volatile Action[] actions;
+  /**The card each action took from the player's hand, or null for hints**/
+  private volatile Card[] cards;
+  /**The hidden effects of each action, as MISPLAY and BONUS_HINT flags**/
+  private volatile byte[] effects;
+  /**The order of the first action in the log, for logs of states whose earlier history is unknown**/
+  private final int base;
+  /**The order after the last action in the log. Entries are written before the size is raised, so readers that check the size first see them.**/
+  private volatile int size;
+
+  /**
+   * Creates an empty log
+   * @param base the order of the first state that will be extended with this log
+   **/
+  ActionLog(int base){
+    this.base = base;
+    this.size = base;
+    codes = new int[64];
+    actions = new Action[64];
+    cards = new Card[64];
+    effects = new byte[64];
+  }
+
+  /**
+   * Records an action made from the state of the given order.
+   * @param order the order of the state the action was made in
+   * @param action the action
+   * @param card the card the action took from the player's hand, or null for a hint
+   * @param effect the MISPLAY and BONUS_HINT flags of the action
+   * @return this log, if order was the end of the log, otherwise a copy of the log up to order with the action added
+   **/
+  synchronized ActionLog append(int order, Action action, Card card, byte effect){
+    ActionLog log = this;
+    if(order!=size){
+      log = new ActionLog(base);
+      log.codes = java.util.Arrays.copyOf(codes, codes.length);
+      log.actions = java.util.Arrays.copyOf(actions, actions.length);
+      log.cards = java.util.Arrays.copyOf(cards, cards.length);
+      log.effects = java.util.Arrays.copyOf(effects, effects.length);
+      log.size = order;
+    }
+    synchronized(log){
+      int i = order-base;
+      if(i==log.codes.length){
+        log.codes = java.util.Arrays.copyOf(log.codes, i*2);
+        log.actions = java.util.Arrays.copyOf(log.actions, i*2);
+        log.cards = java.util.Arrays.copyOf(log.cards, i*2);
+        log.effects = java.util.Arrays.copyOf(log.effects, i*2);
+      }
+      log.codes[i] = action.encode();
+      log.actions[i] = action;
+      log.cards[i] = card;
+      log.effects[i] = effect;
+      log.size = order+1;
+    }
+    return log;
+  }
+
+  /**
+   * Tests if an action is recorded in this log
+   * @param index the index of the action, where the first action of the game has index 0
+   * @return true if the action is known
+   **/
+  boolean contains(int index){return index>=base && index<size;}
+
+  /**
+   * Gets an action
+   * @param index the index of the action, where the first action of the game has index 0
+   * @return the action, or null if it is not known
+   **/
+  Action get(int index){return contains(index)?actions[index-base]:null;}
+
+  /**
+   * Gets the code of an action
+   * @param index the index of the action, where the first action of the game has index 0
+   * @return the code of the action given by Action.encode(), or -1 if it is not known
+   **/
+  int getCode(int index){return contains(index)?codes[index-base]:-1;}
+
+  /**
+   * Gets the card an action took from the player's hand
+   * @param index the index of the action, where the first action of the game has index 0
+   * @return the card played or discarded, or null if the action was a hint or is not known
+   **/
+  Card getCard(int index){return contains(index)?cards[index-base]:null;}
+
+  /**
+   * Gets the hidden effects of an action
+   * @param index the index of the action, where the first action of the game has index 0
+   * @return the MISPLAY and BONUS_HINT flags of the action, or 0 if it is not known
+   **/
+  byte getEffect(int index){return contains(index)?effects[index-base]:0;}
+}
@@ -0,0 +1,163 @@
+package hanabAI;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A cache of canonical Actions, indexed by the code given by Action.encode().
+ * Every play, discard and hint has a single shared Action, created the first time it is asked for,
+ * so agents that consider many candidate moves do not create an Action or hint array for each.
+ * Actions are kept in blocks of 32 codes, which are only made when first used.
+ * Games with the same players share a pool, which may be used from many threads.
+ **/
+public class ActionPool{
+
+  //the most pools kept for sharing, beyond which new pools are not shared
+  private static final int MAX_SHARED = 1024;
+  //the shared pools, keyed by the names of the players
+  private static final ConcurrentHashMap<List<String>, ActionPool> SHARED = new ConcurrentHashMap<List<String>, ActionPool>();
+
+  private final String[] names;
+  private final int handSize;
+  //the blocks of actions, indexed by the top 11 bits of the code
+  private final AtomicReferenceArray<AtomicReferenceArray<Action>> blocks = new AtomicReferenceArray<AtomicReferenceArray<Action>>(1<<11);
+
+  /**
+   * Creates an empty pool.
+   * @param names the names of the players in the game, which are not copied and must not be modified
+   * @param handSize the number of cards in each hand
+   * @throws IllegalArgumentException if there are not 2 to 5 players, or the hand size is not 4 or 5
+   **/
+  public ActionPool(String[] names, int handSize) throws IllegalArgumentException{
+    if(names==null || names.length<2 || names.length>5 || handSize<4 || handSize>5)
+      throw new IllegalArgumentException("incorrect parameters");
+    this.names = names;
+    this.handSize = handSize;
+  }
+
+  /**
+   * Gets the pool shared by all games with the given players.
+   * @param names the names of the players in the game, which are not copied and must not be modified
+   * @return a pool for the players, with the hand size for that number of players
+   * @throws IllegalArgumentException if there are not 2 to 5 players
+   **/
+  public static ActionPool forPlayers(String[] names) throws IllegalArgumentException{
+    if(names==null || names.length<2 || names.length>5) throw new IllegalArgumentException("incorrect parameters");
+    List<String> key = Arrays.asList(names);
+    ActionPool pool = SHARED.get(key);
+    if(pool!=null) return pool;
+    pool = new ActionPool(names, names.length>3?4:5);
+    if(SHARED.size()>=MAX_SHARED) return pool;
+    ActionPool shared = SHARED.putIfAbsent(key, pool);
+    return shared==null?pool:shared;
+  }
+
+  /**
+   * Gets the canonical action with the given code.
+   * @param code the code of the action, as given by Action.encode()
+   * @return the shared action with that code
+   * @throws IllegalActionException if the code does not describe an action in this game
+   **/
+  public Action get(int code) throws IllegalActionException{
+    if(code<0 || code>0xFFFF) throw new IllegalActionException("No action with code "+code);
+    AtomicReferenceArray<Action> block = blocks.get(code>>>5);
+    if(block==null){
+      blocks.compareAndSet(code>>>5, null, new AtomicReferenceArray<Action>(32));
+      block = blocks.get(code>>>5);
+    }
+    Action action = block.get(code&0x1F);
+    if(action==null){
+      action = create(code);
+      if(!block.compareAndSet(code&0x1F, null, action)) action = block.get(code&0x1F);
+    }
+    return action;
+  }
+
+  /**
+   * Gets the action of a player playing a card.
+   * @param player the index of the player
+   * @param card the position of the card in the player's hand
+   * @return the shared action
+   * @throws IllegalActionException if there is no such player or card
+   **/
+  public Action play(int player, int card) throws IllegalActionException{
+    return get(Action.encode(ActionType.PLAY, check(player), checkCard(card), 0, 0));
+  }
+
+  /**
+   * Gets the action of a player discarding a card.
+   * @param player the index of the player
+   * @param card the position of the card in the player's hand
+   * @return the shared action
+   * @throws IllegalActionException if there is no such player or card
+   **/
+  public Action discard(int player, int card) throws IllegalActionException{
+    return get(Action.encode(ActionType.DISCARD, check(player), checkCard(card), 0, 0));
+  }
+
+  /**
+   * Gets the action of a player giving a colour hint.
+   * @param player the index of the player giving the hint
+   * @param receiver the index of the player receiving the hint
+   * @param colour the colour hinted
+   * @param mask the cards hinted at, with bit i set for the ith card in the receiver's hand
+   * @return the shared action
+   * @throws IllegalActionException if there is no such player or receiver, or the mask does not fit the hand
+   **/
+  public Action hintColour(int player, int receiver, Colour colour, int mask) throws IllegalActionException{
+    return get(Action.encode(ActionType.HINT_COLOUR, check(player), check(receiver), colour.ordinal(), checkMask(mask)));
+  }
+
+  /**
+   * Gets the action of a player giving a value hint.
+   * @param player the index of the player giving the hint
+   * @param receiver the index of the player receiving the hint
+   * @param value the value hinted
+   * @param mask the cards hinted at, with bit i set for the ith card in the receiver's hand
+   * @return the shared action
+   * @throws IllegalActionException if there is no such player or receiver, the value is not 1 to 5, or the mask does not fit the hand
+   **/
+  public Action hintValue(int player, int receiver, int value, int mask) throws IllegalActionException{
+    if(value<1 || value>5) throw new IllegalActionException("No value "+value);
+    return get(Action.encode(ActionType.HINT_VALUE, check(player), check(receiver), value, checkMask(mask)));
+  }
+
+  //decodes an action after checking it fits this game
+  private Action create(int code) throws IllegalActionException{
+    int player = code>>13&0x7;
+    int target = code>>2&0x7;
+    ActionType type = ActionType.values()[code&0x3];
+    check(player);
+    if(type==ActionType.PLAY || type==ActionType.DISCARD){
+      if((code&0xFFE0)!=(player<<13)) throw new IllegalActionException("No action with code "+code);
+      checkCard(target);
+    }
+    else{
+      check(target);
+      checkMask(code>>8&0x1F);
+      int hint = code>>5&0x7;
+      if(type==ActionType.HINT_VALUE && (hint<1 || hint>5)) throw new IllegalActionException("No value "+hint);
+    }
+    return Action.decode(code, names[player], handSize);
+  }
+
+  //returns the index of a player, if there is such a player
+  private int check(int player) throws IllegalActionException{
+    if(player<0 || player>=names.length) throw new IllegalActionException("No player "+player);
+    return player;
+  }
+
+  //returns a card position, if it is in the hand
+  private int checkCard(int card) throws IllegalActionException{
+    if(card<0 || card>=handSize) throw new IllegalActionException("No card at position "+card);
+    return card;
+  }
+
+  //returns a hint mask, if it fits the hand
+  private int checkMask(int mask) throws IllegalActionException{
+    if(mask<0 || mask>=1<<handSize) throw new IllegalActionException("Hint mask "+mask+" does not fit the hand");
+    return mask;
+  }
+}
@@ -0,0 +1,18 @@
+package hanabAI;
+
+/**
+ * A factory for creating agents, so that a game runner can build a fresh set of players for every game.
+ * Runners may call the factory from several worker threads at once,
+ * so implementations should not share mutable state between the agents they create.
+ **/
+public interface AgentFactory{
+
+  /**
+   * Creates a new agent to sit at the given position of a new game.
+   * @param seat the index the agent will have in the game
+   * @param players the number of players in the game
+   * @return a new agent, not shared with any other game
+   **/
+  public Agent create(int seat, int players);
+
+}
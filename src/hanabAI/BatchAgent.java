@@ -0,0 +1,28 @@
+package hanabAI;
+
+/**
+ * An optional extension of Agent for strategies that can choose moves for many games in one call.
+ * A batch agent is shared by every game in a batch, sitting in the same seat of each,
+ * so it must keep any memory of a game keyed by the game's number.
+ * Batch agents may still be used for single games through doAction.
+ **/
+public interface BatchAgent extends Agent{
+
+  /**
+   * Given the states of several games, chooses the action for each.
+   * Every state has this agent as the next player, and each game appears at most once in a call.
+   * @param games the numbers of the games, which are unique among the games in progress
+   * @param states the local states of the games, in the same order as games
+   * @param actions the array to store the chosen actions in, in the same order as games
+   * @param count the number of games in the batch, which are at the start of each array
+   **/
+  public void doActions(long[] games, State[] states, Action[] actions, int count);
+
+  /**
+   * Reports that a game has finished, so any memory of it can be released.
+   * The game's number may be reused for a later game.
+   * @param game the number of the game that finished
+   **/
+  public void gameEnded(long game);
+
+}
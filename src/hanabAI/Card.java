@@ -2,21 +2,66 @@ package hanabAI;
 
 import java.util.Stack;
 
-/**An immutable class for representing Hanabi cards**/
+/**
+ * An immutable class for representing Hanabi cards.
+ * There are 25 distinct cards, each with a canonical instance given by Card.of, and a code from 0 to 24 given by code(),
+ * so cards can be compared with ==, used as keys, or counted in an array indexed by code.
+ **/
 public class Card{
-  private Colour colour;//the card's colour
-  private int value;//the number on the card
+
+  /**The number of distinct cards, and so of card codes**/
+  public static final int CODES = 25;
+
+  private final Colour colour;//the card's colour
+  private final int value;//the number on the card
+  private final int code;//colour.ordinal()*5+value-1
+
+  //the canonical card for each code
+  private static final Card[] CARDS = new Card[CODES];
+  static{
+    for(Colour c: Colour.values())
+      for(int v = 1; v<=5; v++){
+        Card card = new Card(c,v);
+        CARDS[card.code] = card;
+      }
+  }
 
   /**
-   * Constrcuts a card with the specified colour and value
+   * Constrcuts a card with the specified colour and value.
+   * Card.of should be preferred, as it does not create a new card.
    * @throws IllegalArgumentException if the Value is not between 1 and 5 inclusive
    **/
   public Card(Colour c, int val) throws IllegalArgumentException{
     if(val<1 || val>5) throw new IllegalArgumentException("Card value out of range");
     colour = c;
     value = val;
+    code = c.ordinal()*5+val-1;
+  }
+
+  /**
+   * Gets the canonical card with the specified colour and value.
+   * @return the shared instance of the card
+   * @throws IllegalArgumentException if the Value is not between 1 and 5 inclusive
+   **/
+  public static Card of(Colour c, int val) throws IllegalArgumentException{
+    if(val<1 || val>5) throw new IllegalArgumentException("Card value out of range");
+    return CARDS[c.ordinal()*5+val-1];
   }
 
+  /**
+   * Gets the canonical card with the specified code.
+   * @param code a card code, from 0 to 24
+   * @return the shared instance of the card with that code
+   * @throws ArrayIndexOutOfBoundsException if the code is out of range
+   **/
+  public static Card fromCode(int code){return CARDS[code];}
+
+  /**
+   * Gets the code of the card, for indexing arrays by card.
+   * @return colour.ordinal()*5 + value-1, a number from 0 to 24
+   **/
+  public int code(){return code;}
+
   /**
    *Get the colour
    *@return the colour of the card
@@ -42,58 +87,62 @@ public class Card{
   public String toString(){return colour.toString()+"-"+value;}
 
   /**
-   * Gives a new instance of a complete deck of cards, ordered by colour and value
+   * Gives a new instance of a complete deck of cards, ordered by colour and value.
+   * The array is new, but the cards are the canonical instances.
    * @return an array of cards corresponding to a standard Hanabi deck 
    **/
   public static Card[] getDeck(){return deck.clone();}
 
   /**
    * Gives a new instance of a shuffled deck of cards deck of cards.
-   * Pairs of random cards are swapped 100 times, and placed into a stack. 
+   * The deck is shuffled with a single unseeded Fisher-Yates pass, and placed into a stack. 
+   * Use Deck to get a reproducible shuffle.
    * @return a stack of Hanabi cards in random order 
    **/
   public static Stack<Card> shuffledDeck(){
-    Card[] deck = getDeck();
-    java.util.Random r = new java.util.Random();
-    for(int i = 0; i<1000; i++){
-      int a = r.nextInt(50);
-      int b = r.nextInt(50);
-      Card c = deck[a];
-      deck[a]= deck[b];
-      deck[b]=c;
-    }
-    Stack<Card> shuffle = new Stack<Card>();
-    for(Card c: deck) shuffle.push(c);
-    return shuffle;
+    return new Deck(new java.util.SplittableRandom()).toStack();
   }
 
+  /**
+   * Gets a card of the standard deck by its index, without copying the deck.
+   * @param index the position of the card in the array returned by getDeck()
+   * @return the card at that position
+   **/
+  static Card deckCard(int index){return deck[index];}
+
   /**
    * Cards are compared by colour and value.
    **/ 
   public boolean equals(Object o){
     if(o!=null && o instanceof Card){ 
       Card c = (Card)o;
-      return c.colour == colour && c.value==value;
+      return c.code==code;
     }
     return false;
   }
 
-  private static Card[] deck = {
-    new Card(Colour.BLUE,1),new Card(Colour.BLUE,1), new Card(Colour.BLUE,1),
-    new Card(Colour.BLUE,2),new Card(Colour.BLUE,2),new Card(Colour.BLUE,3),new Card(Colour.BLUE,3),
-    new Card(Colour.BLUE,4),new Card(Colour.BLUE,4),new Card(Colour.BLUE,5),
-    new Card(Colour.RED,1),new Card(Colour.RED,1), new Card(Colour.RED,1),
-    new Card(Colour.RED,2),new Card(Colour.RED,2),new Card(Colour.RED,3),new Card(Colour.RED,3),
-    new Card(Colour.RED,4),new Card(Colour.RED,4),new Card(Colour.RED,5),
-    new Card(Colour.GREEN,1),new Card(Colour.GREEN,1), new Card(Colour.GREEN,1),
-    new Card(Colour.GREEN,2),new Card(Colour.GREEN,2),new Card(Colour.GREEN,3),new Card(Colour.GREEN,3),
-    new Card(Colour.GREEN,4),new Card(Colour.GREEN,4),new Card(Colour.GREEN,5),
-    new Card(Colour.WHITE,1),new Card(Colour.WHITE,1), new Card(Colour.WHITE,1),
-    new Card(Colour.WHITE,2),new Card(Colour.WHITE,2),new Card(Colour.WHITE,3),new Card(Colour.WHITE,3),
-    new Card(Colour.WHITE,4),new Card(Colour.WHITE,4),new Card(Colour.WHITE,5),
-    new Card(Colour.YELLOW,1),new Card(Colour.YELLOW,1), new Card(Colour.YELLOW,1),
-    new Card(Colour.YELLOW,2),new Card(Colour.YELLOW,2),new Card(Colour.YELLOW,3),new Card(Colour.YELLOW,3),
-    new Card(Colour.YELLOW,4),new Card(Colour.YELLOW,4),new Card(Colour.YELLOW,5)
+  /**
+   * The hash code of a card is its code, so it is consistent with equals.
+   **/ 
+  public int hashCode(){return code;}
+
+  //the standard deck, made of the canonical cards
+  private static final Card[] deck = {
+    of(Colour.BLUE,1),of(Colour.BLUE,1), of(Colour.BLUE,1),
+    of(Colour.BLUE,2),of(Colour.BLUE,2),of(Colour.BLUE,3),of(Colour.BLUE,3),
+    of(Colour.BLUE,4),of(Colour.BLUE,4),of(Colour.BLUE,5),
+    of(Colour.RED,1),of(Colour.RED,1), of(Colour.RED,1),
+    of(Colour.RED,2),of(Colour.RED,2),of(Colour.RED,3),of(Colour.RED,3),
+    of(Colour.RED,4),of(Colour.RED,4),of(Colour.RED,5),
+    of(Colour.GREEN,1),of(Colour.GREEN,1), of(Colour.GREEN,1),
+    of(Colour.GREEN,2),of(Colour.GREEN,2),of(Colour.GREEN,3),of(Colour.GREEN,3),
+    of(Colour.GREEN,4),of(Colour.GREEN,4),of(Colour.GREEN,5),
+    of(Colour.WHITE,1),of(Colour.WHITE,1), of(Colour.WHITE,1),
+    of(Colour.WHITE,2),of(Colour.WHITE,2),of(Colour.WHITE,3),of(Colour.WHITE,3),
+    of(Colour.WHITE,4),of(Colour.WHITE,4),of(Colour.WHITE,5),
+    of(Colour.YELLOW,1),of(Colour.YELLOW,1), of(Colour.YELLOW,1),
+    of(Colour.YELLOW,2),of(Colour.YELLOW,2),of(Colour.YELLOW,3),of(Colour.YELLOW,3),
+    of(Colour.YELLOW,4),of(Colour.YELLOW,4),of(Colour.YELLOW,5)
   };
 
 }
@@ -0,0 +1,433 @@
+package hanabAI;
+
+import java.util.List;
+import java.util.Stack;
+
+/**
+ * A compact representation of the global game state in Hanabi, for agents that search through many states.
+ * Cards are stored as codes from 0 to 24 (colour*5 + value-1, or -1 for an empty slot),
+ * the hands are a single array of card codes, the discards are a count for each card code,
+ * the firework heights are packed three bits per colour, and the hint and fuse tokens share one int.
+ * Copying a state therefore copies a few dozen bytes, and the deck is shared between copies since it is never modified.
+ *
+ * States produced by nextState remember the state and action they came from,
+ * so toState can produce an equivalent State, with its history, for existing agents.
+ * The in-place methods play, discard and hint are intended for rollouts, and discard that history.
+ **/
+public class CompactState{
+
+  /**The number of distinct cards**/
+  public static final int CODES = Card.CODES;
+
+  /**The number of players in the game**/
+  private int players;
+  /**The number of cards in each hand**/
+  private int handSize;
+  /**The card code in each hand slot, indexed by player*handSize + slot**/
+  private byte[] hands;
+  /**The number of each card code in the discard pile**/
+  private byte[] discards;
+  /**The card codes in the deck, with the top card at deckSize-1. Shared between copies, and never modified.**/
+  private byte[] deck;
+  /**The number of cards left in the deck**/
+  private int deckSize;
+  /**The height of each firework, three bits per colour ordinal**/
+  private int fireworks;
+  /**The hint tokens in bits 0-3, and the fuse tokens in bits 4-5**/
+  private int tokens;
+  /**The order of this state in the game**/
+  private int order;
+  /**The order of the final action, or -1 if the deck is not empty**/
+  private int finalAction;
+
+  /**The state this state was produced from by nextState, or null**/
+  private CompactState parent;
+  /**The action that produced this state from parent**/
+  private Action lastAction;
+  /**The State this state was created from, or a State view already built by toState**/
+  private State view;
+
+  /**
+   * Deals the first state of a game.
+   * @param players the number of players, between 2 and 5
+   * @param deck a full deck, which is not modified
+   * @throws IllegalArgumentException if the number of players is out of range or the deck is not full
+   **/
+  public CompactState(int players, Deck deck) throws IllegalArgumentException{
+    if(players<2 || players>5 || deck==null || deck.size()!=Deck.SIZE) throw new IllegalArgumentException("incorrect parameters");
+    this.players = players;
+    handSize = players>3?4:5;
+    this.deck = deckCodes(deck);
+    deckSize = deck.size();
+    hands = new byte[players*handSize];
+    for(int i = 0; i<hands.length; i++) hands[i] = this.deck[--deckSize];
+    discards = new byte[CODES];
+    tokens = 8 | 3<<4;
+    finalAction = -1;
+  }
+
+  /**
+   * Creates a compact copy of a global State.
+   * @param state a state with no observer
+   * @param deck the deck the game is being played with, with the cards that have been drawn removed
+   * @throws IllegalArgumentException if the state has an observer, or the deck is missing
+   **/
+  public CompactState(State state, Deck deck) throws IllegalArgumentException{
+    if(state==null || deck==null || state.getObserver()!=-1) throw new IllegalArgumentException("incorrect parameters");
+    copyState(state);
+    this.deck = deckCodes(deck);
+    deckSize = deck.size();
+    view = state;
+  }
+
+  /**
+   * Creates a compact copy of a State as its observer sees it, for an agent to search from.
+   * The observer's cards are not known, so they are left empty and the deck is left with no cards.
+   * Before the state is played, the agent must fill them with a guess, using setCard and setDeck.
+   * @param state a state with an observer
+   * @throws IllegalArgumentException if the state is global
+   **/
+  public CompactState(State state) throws IllegalArgumentException{
+    if(state==null || state.getObserver()==-1) throw new IllegalArgumentException("incorrect parameters");
+    copyState(state);
+    deck = new byte[0];
+  }
+
+  //copies the cards, piles and counters of a state, with -1 for cards that are hidden or empty
+  private void copyState(State state){
+    players = state.getPlayerCount();
+    handSize = players>3?4:5;
+    hands = new byte[players*handSize];
+    for(int p = 0; p<players; p++){
+      List<Card> hand = state.handView(p);
+      for(int i = 0; i<handSize; i++) hands[p*handSize+i] = (byte)(hand.get(i)==null?-1:code(hand.get(i)));
+    }
+    discards = new byte[CODES];
+    for(Colour c: Colour.values()){
+      for(int v = 1; v<=5; v++) discards[code(c,v)] = (byte)state.getDiscardCount(c,v);
+      fireworks |= state.getFireworkHeight(c)<<3*c.ordinal();
+    }
+    tokens = state.getHintTokens() | state.getFuseTokens()<<4;
+    order = state.getOrder();
+    finalAction = state.getFinalActionIndex();
+  }
+
+  //copy constructor
+  private CompactState(CompactState s){
+    players = s.players;
+    handSize = s.handSize;
+    hands = s.hands.clone();
+    discards = s.discards.clone();
+    deck = s.deck;
+    deckSize = s.deckSize;
+    fireworks = s.fireworks;
+    tokens = s.tokens;
+    order = s.order;
+    finalAction = s.finalAction;
+  }
+
+  //the codes of all cards of a deck, in the deck's order
+  private static byte[] deckCodes(Deck deck){
+    int[] order = deck.getOrder();
+    byte[] codes = new byte[order.length];
+    for(int i = 0; i<order.length; i++) codes[i] = (byte)code(Card.deckCard(order[i]));
+    return codes;
+  }
+
+  /**
+   * Gets the code of a card
+   * @param colour the colour of the card
+   * @param value the value of the card, from 1 to 5
+   * @return colour.ordinal()*5 + value-1
+   **/
+  public static int code(Colour colour, int value){return colour.ordinal()*5+value-1;}
+
+  /**
+   * Gets the code of a card
+   * @param card the card
+   * @return the code of the card's colour and value
+   **/
+  public static int code(Card card){return card.code();}
+
+  /**
+   * Gets the card with a given code
+   * @param code a card code from 0 to 24
+   * @return the card with that code
+   **/
+  public static Card card(int code){return Card.fromCode(code);}
+
+  /**
+   * Gives an independent copy of this state, sharing only the deck.
+   * @return a copy of the state, with no history
+   **/
+  public CompactState copy(){return new CompactState(this);}
+
+  /**
+   * Overwrites this state with the contents of another state of a game with the same number of players, without allocating.
+   * This is intended for resetting a scratch state at the start of each rollout.
+   * @param s the state to copy
+   * @throws IllegalArgumentException if the states have a different number of players
+   **/
+  public void copyFrom(CompactState s) throws IllegalArgumentException{
+    if(s.players!=players) throw new IllegalArgumentException("Different number of players");
+    System.arraycopy(s.hands, 0, hands, 0, hands.length);
+    System.arraycopy(s.discards, 0, discards, 0, CODES);
+    deck = s.deck;
+    deckSize = s.deckSize;
+    fireworks = s.fireworks;
+    tokens = s.tokens;
+    order = s.order;
+    finalAction = s.finalAction;
+    parent = null;
+    lastAction = null;
+    view = null;
+  }
+
+  /**@return the number of players in the game**/
+  public int getPlayers(){return players;}
+
+  /**@return the number of cards in each hand**/
+  public int getHandSize(){return handSize;}
+
+  /**
+   * Gets a card in a player's hand
+   * @param player the index of the player
+   * @param slot the position of the card in the hand
+   * @return the card code, or -1 if the slot is empty
+   **/
+  public int getCard(int player, int slot){return hands[player*handSize+slot];}
+
+  /**
+   * Replaces a card in a player's hand, for example with a guess of a hidden card.
+   * @param player the index of the player
+   * @param slot the position of the card in the hand
+   * @param code the card code, or -1 for an empty slot
+   **/
+  public void setCard(int player, int slot, int code){hands[player*handSize+slot] = (byte)code;}
+
+  /**
+   * Replaces the cards left in the deck, for example with a guess of the order of the unseen cards.
+   * The array is shared, not copied, so it must not be modified while this state or its copies are in use.
+   * @param codes the card codes of the deck, with the top card at size-1
+   * @param size the number of cards left in the deck
+   **/
+  public void setDeck(byte[] codes, int size){
+    deck = codes;
+    deckSize = size;
+  }
+
+  /**@return the number of cards left in the deck**/
+  public int getDeckSize(){return deckSize;}
+
+  /**@return the number of hint tokens available**/
+  public int getHintTokens(){return tokens&0xF;}
+
+  /**@return the number of fuse tokens left**/
+  public int getFuseTokens(){return tokens>>4&0x3;}
+
+  /**
+   * Gets the number of cards in a firework
+   * @param colour the colour of the firework
+   * @return the value of the top card of the firework, or 0 if it is empty
+   **/
+  public int getFireworkHeight(Colour colour){return fireworks>>3*colour.ordinal()&0x7;}
+
+  /**
+   * Gets the number of copies of a card in the discard pile
+   * @param code the card code
+   * @return the number of cards with that code that have been discarded or misplayed
+   **/
+  public int getDiscardCount(int code){return discards[code];}
+
+  /**
+   * Tests if a card can be played on the fireworks
+   * @param code the card code
+   * @return true if the card is the next card of its colour's firework
+   **/
+  public boolean isPlayable(int code){return (fireworks>>3*(code/5)&0x7)==code%5;}
+
+  /**@return the order of this state in the game**/
+  public int getOrder(){return order;}
+
+  /**@return the order of the final action, or -1 if the deck is not empty**/
+  public int getFinalActionIndex(){return finalAction;}
+
+  /**@return the index of the next player to move, or -1 if the game is over**/
+  public int getNextPlayer(){return gameOver()?-1:order%players;}
+
+  /**
+   * Get the current score
+   * @return the sum of the firework heights, or 0 if the fuse has run out
+   **/
+  public int getScore(){
+    if(getFuseTokens()==0) return 0;
+    int score = 0;
+    for(int f = fireworks; f!=0; f>>>=3) score+=f&0x7;
+    return score;
+  }
+
+  /**
+   * Tests if the game is over
+   * @return true if all fireworks have been made, the deck has run out, or a fuse has exploded.
+   **/
+  public boolean gameOver(){
+    return order==finalAction || getFuseTokens()==0 || getScore()==25;
+  }
+
+  /**
+   * Gets the cards in a hand that match a colour, as a bitmask
+   * @param player the index of the player
+   * @param colour the colour hinted
+   * @return a mask with bit i set if and only if the card in slot i has the given colour
+   **/
+  public int colourMask(int player, Colour colour){
+    int mask = 0;
+    for(int i = 0, base = player*handSize; i<handSize; i++){
+      int c = hands[base+i];
+      if(c>=0 && c/5==colour.ordinal()) mask |= 1<<i;
+    }
+    return mask;
+  }
+
+  /**
+   * Gets the cards in a hand that match a value, as a bitmask
+   * @param player the index of the player
+   * @param value the value hinted
+   * @return a mask with bit i set if and only if the card in slot i has the given value
+   **/
+  public int valueMask(int player, int value){
+    int mask = 0;
+    for(int i = 0, base = player*handSize; i<handSize; i++){
+      int c = hands[base+i];
+      if(c>=0 && c%5==value-1) mask |= 1<<i;
+    }
+    return mask;
+  }
+
+  /**
+   * Test the legality of an Action, with the same rules as State.legalAction
+   * @param a the action to be tested
+   * @return true if the action is legal in this state
+   **/
+  public boolean legalAction(Action a){
+    int p = order%players;
+    if(a.getPlayer()!=p || gameOver()) return false;
+    switch(a.getType()){
+      case PLAY:
+        return a.card()>=0 && a.card()<handSize && hands[p*handSize+a.card()]>=0;
+      case DISCARD:
+        return getHintTokens()<8 && a.card()>=0 && a.card()<handSize && hands[p*handSize+a.card()]>=0;
+      case HINT_COLOUR:
+      case HINT_VALUE:
+        int r = a.hintee();
+        if(getHintTokens()==0 || r<0 || r>=players || r==p || a.hintLength()!=handSize) return false;
+        return a.hintMask()==(a.getType()==ActionType.HINT_COLOUR?colourMask(r, a.colour()):valueMask(r, a.value()));
+      default: return false;
+    }
+  }
+
+  /**
+   * Creates the next state from this state and an action, leaving this state unchanged.
+   * @param a the action made
+   * @return the new state, which remembers this state and the action in its history
+   * @throws IllegalActionException if the action is not legal in this state
+   **/
+  public CompactState nextState(Action a) throws IllegalActionException{
+    if(!legalAction(a)) throw new IllegalActionException("Invalid action!: "+a);
+    CompactState s = new CompactState(this);
+    switch(a.getType()){
+      case PLAY: s.play(a.getCard()); break;
+      case DISCARD: s.discard(a.getCard()); break;
+      default: s.hint(); break;
+    }
+    s.parent = this;
+    s.lastAction = a;
+    return s;
+  }
+
+  /**
+   * The next player plays the card in the given slot, in place.
+   * The caller must ensure the move is legal.
+   * @param slot the position of the card in the next player's hand
+   **/
+  public void play(int slot){
+    int i = order%players*handSize+slot;
+    int c = hands[i];
+    int shift = 3*(c/5);
+    int height = fireworks>>shift&0x7;
+    if(height==c%5){
+      fireworks += 1<<shift;
+      if(height==4 && (tokens&0xF)<8) tokens++;
+    }
+    else{
+      discards[c]++;
+      tokens -= 1<<4;
+    }
+    draw(i);
+  }
+
+  /**
+   * The next player discards the card in the given slot, in place.
+   * The caller must ensure the move is legal.
+   * @param slot the position of the card in the next player's hand
+   **/
+  public void discard(int slot){
+    int i = order%players*handSize+slot;
+    discards[hands[i]]++;
+    if((tokens&0xF)<8) tokens++;
+    draw(i);
+  }
+
+  /**
+   * The next player gives a hint, in place.
+   * The compact state does not record what players know, so this only uses a hint token and passes the turn.
+   * The caller must ensure a hint token is available.
+   **/
+  public void hint(){
+    tokens--;
+    endTurn();
+  }
+
+  //replaces the card at index i of hands with the top of the deck, exactly as State does
+  private void draw(int i){
+    if(deckSize>0) hands[i] = deck[--deckSize];
+    if(deckSize==0){
+      if(finalAction==-1) finalAction = order+players;
+      hands[i] = -1;
+    }
+    endTurn();
+  }
+
+  private void endTurn(){
+    order++;
+    parent = null;
+    lastAction = null;
+    view = null;
+  }
+
+  /**
+   * Gives a State equivalent to this state, so that existing agents can be asked for a move.
+   * The history of the State follows the states this state was produced from by nextState,
+   * back to the State it was created from, or the first state of the game.
+   * Since only discard counts are kept, the discard pile of the State is ordered by card rather than by time.
+   * @param names the names of the players
+   * @return a global State for this state
+   **/
+  public State toState(String[] names){
+    if(view==null){
+      State previous = parent==null?null:parent.toState(names);
+      Card[][] h = new Card[players][handSize];
+      for(int p = 0; p<players; p++)
+        for(int i = 0; i<handSize; i++){
+          int c = hands[p*handSize+i];
+          h[p][i] = c<0?null:Card.fromCode(c);
+        }
+      Stack<Card> d = new Stack<Card>();
+      for(int c = 0; c<CODES; c++) for(int k = 0; k<discards[c]; k++) d.push(Card.fromCode(c));
+      int[] heights = new int[Colour.values().length];
+      for(Colour c: Colour.values()) heights[c.ordinal()] = getFireworkHeight(c);
+      view = new State(names, h, d, heights, order, getHintTokens(), getFuseTokens(), finalAction, previous, lastAction);
+    }
+    return view;
+  }
+}
@@ -0,0 +1,20 @@
+package hanabAI;
+
+/**
+ * An optional extension of Agent for strategies that can make use of a time limit,
+ * such as search agents that improve their move the longer they run.
+ * When a game is played with a MoveTimer, a deadline agent is told the deadline for each move,
+ * and should return its best move so far before the deadline passes.
+ **/
+public interface DeadlineAgent extends Agent{
+
+  /**
+   * Given the state, return the action that the strategy chooses for this state before the deadline.
+   * An agent that misses the deadline has a fallback move made for it instead.
+   * @param s the state as seen by the agent
+   * @param deadline the time the move is due, comparable with System.nanoTime()
+   * @return the action the agent chooses to perform
+   **/
+  public Action doAction(State s, long deadline);
+
+}
@@ -0,0 +1,114 @@
+package hanabAI;
+
+import java.util.SplittableRandom;
+import java.util.Stack;
+
+/**
+ * A shuffled deck of Hanabi cards.
+ * The deck is held as a permutation of the indices of the standard deck returned by Card.getDeck(),
+ * and cards are drawn from the end of the permutation, in the same order a Stack would pop them.
+ * A deck built from a seed always has the same order, so games can be replayed exactly, 
+ * and a run of games can be sharded across workers by seed range.
+ **/
+public class Deck{
+
+  /**The number of cards in a full deck**/
+  public static final int SIZE = 50;
+
+  /**The order of the cards, as indices into the standard deck. The top of the deck is at the end.**/
+  private int[] order;
+  /**The number of cards left to draw**/
+  private int size;
+
+  /**
+   * Creates a deck shuffled by the generator seeded with the given value.
+   * @param seed the seed of the shuffle
+   **/
+  public Deck(long seed){
+    this(new SplittableRandom(seed));
+  }
+
+  /**
+   * Creates a deck shuffled with a single Fisher-Yates pass using the given generator.
+   * @param random the source of randomness for the shuffle
+   **/
+  public Deck(SplittableRandom random){
+    order = new int[SIZE];
+    for(int i = 0; i<SIZE; i++) order[i] = i;
+    for(int i = SIZE-1; i>0; i--){
+      int j = random.nextInt(i+1);
+      int t = order[i];
+      order[i] = order[j];
+      order[j] = t;
+    }
+    size = SIZE;
+  }
+
+  /**
+   * Creates a deck with a given order, for example to replay a recorded game.
+   * @param order a permutation of the indices 0 to 49 of the standard deck, with the top card last
+   * @throws IllegalArgumentException if order is not a permutation of the standard deck
+   **/
+  public Deck(int[] order) throws IllegalArgumentException{
+    if(order==null || order.length!=SIZE) throw new IllegalArgumentException("incorrect parameters");
+    boolean[] seen = new boolean[SIZE];
+    for(int i: order){
+      if(i<0 || i>=SIZE || seen[i]) throw new IllegalArgumentException("Deck order is not a permutation");
+      seen[i] = true;
+    }
+    this.order = order.clone();
+    size = SIZE;
+  }
+
+  /**
+   * Gets the full order of the deck, including cards already drawn.
+   * @return a copy of the permutation of standard deck indices, with the top card last
+   **/
+  public int[] getOrder(){return order.clone();}
+
+  /**
+   * Gets the number of cards left in the deck
+   * @return the number of cards that have not been drawn
+   **/
+  public int size(){return size;}
+
+  /**
+   * Tests if the deck has run out
+   * @return true if there are no cards left to draw
+   **/
+  public boolean isEmpty(){return size==0;}
+
+  /**
+   * Draws the top card of the deck
+   * @return the card drawn
+   * @throws java.util.EmptyStackException if the deck is empty
+   **/
+  public Card pop(){
+    if(size==0) throw new java.util.EmptyStackException();
+    return Card.deckCard(order[--size]);
+  }
+
+  /**
+   * Gives a new deck with the same order, that has had the same number of cards drawn.
+   * @return a copy of this deck
+   **/
+  public Deck copy(){
+    Deck d = new Deck();
+    d.order = order;
+    d.size = size;
+    return d;
+  }
+
+  /**
+   * Gives the cards left in the deck as a stack, for use with code expecting Card.shuffledDeck().
+   * @return a stack of the remaining cards, with the top of the deck at the top of the stack
+   **/
+  public Stack<Card> toStack(){
+    Stack<Card> stack = new Stack<Card>();
+    for(int i = 0; i<size; i++) stack.push(Card.deckCard(order[i]));
+    return stack;
+  }
+
+  //used by copy, the order array is never modified so it can be shared
+  private Deck(){}
+}
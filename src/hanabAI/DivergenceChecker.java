@@ -0,0 +1,107 @@
+package hanabAI;
+
+/**
+ * A regression check for rewrites of an agent, such as optimisations that should not change its play.
+ * A reference agent and a candidate agent sit in every seat of the same seeded deals.
+ * At each turn both are given the same state and asked for a move, and the reference agent's move is made,
+ * so the two always see the same game. The moves are compared turn by turn,
+ * and the time each agent takes to decide is measured.
+ * A candidate that throws an exception or chooses an illegal move diverges, and so does one that makes a move where the reference throws.
+ * The game stops there, since the agents may no longer be fit to play it, and the run goes on with the next seed.
+ **/
+public class DivergenceChecker{
+
+  private final AgentFactory reference;
+  private final AgentFactory candidate;
+  private final int players;
+
+  /**
+   * Creates a checker.
+   * @param reference creates the agents whose moves are played
+   * @param candidate creates the agents whose moves are compared with the reference
+   * @param players the number of players in each game
+   * @throws IllegalArgumentException if a factory is null or there are not 2 to 5 players
+   **/
+  public DivergenceChecker(AgentFactory reference, AgentFactory candidate, int players) throws IllegalArgumentException{
+    if(reference==null || candidate==null || players<2 || players>5) throw new IllegalArgumentException("incorrect parameters");
+    this.reference = reference;
+    this.candidate = candidate;
+    this.players = players;
+  }
+
+  /**
+   * Plays a game for each seed.
+   * @param seeds the seeds of the decks to deal, as given to Deck(long)
+   * @return the report of the games
+   * @throws IllegalActionException if the reference agent makes an illegal move
+   **/
+  public DivergenceReport run(long[] seeds) throws IllegalActionException{
+    DivergenceReport report = new DivergenceReport();
+    for(long seed: seeds) play(seed, report);
+    return report;
+  }
+
+  /**
+   * Plays a game for each of a run of consecutive seeds.
+   * @param firstSeed the seed of the first deck
+   * @param games the number of games to play
+   * @return the report of the games
+   * @throws IllegalActionException if the reference agent makes an illegal move
+   **/
+  public DivergenceReport run(long firstSeed, int games) throws IllegalActionException{
+    long[] seeds = new long[games];
+    for(int i = 0; i<games; i++) seeds[i] = firstSeed+i;
+    return run(seeds);
+  }
+
+  //plays one game, adding each pair of decisions to the report
+  private void play(long seed, DivergenceReport report) throws IllegalActionException{
+    Agent[] references = new Agent[players];
+    Agent[] candidates = new Agent[players];
+    for(int i = 0; i<players; i++){
+      references[i] = reference.create(i, players);
+      candidates[i] = candidate.create(i, players);
+    }
+    Hanabi game = new Hanabi(references, new Deck(seed));
+    boolean over = game.getState().gameOver();
+    while(!over){
+      int p = game.getState().getNextPlayer();
+      State local = game.getLocalState();
+      //alternate which agent decides first, so neither always runs on a warmer cache
+      Decision r, c;
+      if((local.getOrder()&1)==0){
+        r = new Decision(references[p], local);
+        c = new Decision(candidates[p], local);
+      }
+      else{
+        c = new Decision(candidates[p], local);
+        r = new Decision(references[p], local);
+      }
+      boolean legal = c.action!=null && legal(local, c.action);
+      report.addDecision(seed, local, r.action, r.error, c.action, c.error, legal, r.nanos, c.nanos);
+      if(r.action==null || c.error!=null || !legal) break;
+      over = game.move(r.action);
+    }
+    report.addGame();
+  }
+
+  //true if the action is a legal move for the observer of the state
+  private static boolean legal(State local, Action action){
+    try{return local.legalAction(action);}
+    catch(IllegalActionException e){return false;}//a move for another player
+  }
+
+  //an agent's move, or the exception it threw instead, and the time it took
+  private static class Decision{
+    Action action;
+    RuntimeException error;
+    long nanos;
+
+    Decision(Agent agent, State local){
+      long t = System.nanoTime();
+      try{action = agent.doAction(local);}
+      catch(RuntimeException e){error = e;}
+      nanos = System.nanoTime()-t;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package hanabAI;
+
+/**
+ * The result of a DivergenceChecker run: how often a candidate agent chose a different move from a reference agent,
+ * the first move where it did, and how fast each agent decided.
+ **/
+public class DivergenceReport{
+
+  /**The number of games played**/
+  private long games;
+  /**The number of decisions each agent made**/
+  private long decisions;
+  /**The number of decisions where the agents chose different moves**/
+  private long divergences;
+  /**The time spent deciding by each agent, in nanoseconds**/
+  private long referenceNanos;
+  private long candidateNanos;
+
+  /**The first divergence, if there has been one**/
+  private long seed;
+  private int order = -1;
+  private Action referenceAction;
+  private Action candidateAction;
+  private RuntimeException referenceError;
+  private RuntimeException candidateError;
+  private boolean candidateLegal;
+  private String context;
+
+  //records one decision by each agent, where an agent that threw has a null action and the exception, keeping the first divergence.
+  //The agents agree if both threw, or if the candidate chose the reference's move and it is legal.
+  void addDecision(long seed, State state, Action reference, RuntimeException referenceThrew,
+      Action candidate, RuntimeException candidateThrew, boolean legal, long referenceTime, long candidateTime){
+    decisions++;
+    referenceNanos+=referenceTime;
+    candidateNanos+=candidateTime;
+    if(referenceThrew!=null && candidateThrew!=null) return;
+    if(reference!=null && candidate!=null && legal && reference.encode()==candidate.encode()) return;
+    if(divergences++>0) return;
+    this.seed = seed;
+    order = state.getOrder();
+    referenceAction = reference;
+    candidateAction = candidate;
+    referenceError = referenceThrew;
+    candidateError = candidateThrew;
+    candidateLegal = legal;
+    context = state.toString();
+  }
+
+  //records the end of a game
+  void addGame(){games++;}
+
+  /**@return the number of games played**/
+  public long getGames(){return games;}
+
+  /**@return the number of decisions made by each agent**/
+  public long getDecisions(){return decisions;}
+
+  /**@return the number of decisions where the candidate chose a different move from the reference**/
+  public long getDivergences(){return divergences;}
+
+  /**@return true if the candidate always chose the same move as the reference**/
+  public boolean isEquivalent(){return divergences==0;}
+
+  /**@return the seed of the deck of the game with the first divergence, or 0 if there was none**/
+  public long getSeed(){return seed;}
+
+  /**@return the order of the state at the first divergence, or -1 if there was none**/
+  public int getOrder(){return order;}
+
+  /**@return the reference agent's move at the first divergence, or null if there was none or the reference threw an exception**/
+  public Action getReferenceAction(){return referenceAction;}
+
+  /**@return the candidate agent's move at the first divergence, or null if there was none or the candidate threw an exception**/
+  public Action getCandidateAction(){return candidateAction;}
+
+  /**@return the exception the reference agent threw at the first divergence, or null if it made a move**/
+  public RuntimeException getReferenceError(){return referenceError;}
+
+  /**@return the exception the candidate agent threw at the first divergence, or null if it made a move**/
+  public RuntimeException getCandidateError(){return candidateError;}
+
+  /**@return true if the candidate's move at the first divergence was legal, or false if it was illegal, missing, or there was no divergence**/
+  public boolean isCandidateLegal(){return candidateLegal;}
+
+  /**@return the state the agents were given at the first divergence, as given by State.toString(), or null if there was none**/
+  public String getContext(){return context;}
+
+  /**@return the number of decisions per second made by the reference agent**/
+  public double getReferenceRate(){return referenceNanos==0?0:decisions*1e9/referenceNanos;}
+
+  /**@return the number of decisions per second made by the candidate agent**/
+  public double getCandidateRate(){return candidateNanos==0?0:decisions*1e9/candidateNanos;}
+
+  /**@return how many times as many decisions per second the candidate made as the reference**/
+  public double getSpeedup(){return candidateNanos==0?0:referenceNanos/(double)candidateNanos;}
+
+  /**
+   * A summary of the run
+   * @return the number of games, decisions and divergences, the decision rates and speedup, and the first divergence if any
+   **/
+  public String toString(){
+    StringBuilder sb = new StringBuilder(String.format(
+        "Games: %d, Decisions: %d, Divergences: %d\nReference: %.0f decisions/s, Candidate: %.0f decisions/s, Speedup: %.2fx",
+        games, decisions, divergences, getReferenceRate(), getCandidateRate(), getSpeedup()));
+    if(divergences>0){
+      sb.append("\nFirst divergence in the game with seed ").append(seed).append(" at move ").append(order).append(":");
+      sb.append("\nReference: ").append(referenceError!=null?"threw "+referenceError:String.valueOf(referenceAction));
+      sb.append("\nCandidate: ").append(candidateError!=null?"threw "+candidateError:candidateAction+(candidateLegal?"":" (illegal)"));
+      sb.append("\n").append(context);
+    }
+    return sb.toString();
+  }
+}
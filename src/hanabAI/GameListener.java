@@ -0,0 +1,35 @@
+package hanabAI;
+
+/**
+ * An interface for receiving the events of a game as it is played, for logging or analysis.
+ * Events are given the objects the game already has, so listening does not add work to each move.
+ * A listener passed to a Tournament receives the events of games played on several threads at once,
+ * and the game number tells the games apart.
+ **/
+public interface GameListener{
+
+  /**
+   * Called once the cards have been dealt, before the first move.
+   * @param game the number of the game, which is the seed of its deck when played by a Tournament
+   * @param state the first state of the game
+   * @param deck the deck the game is played with. Its order includes the cards already dealt.
+   **/
+  public void gameStarted(long game, State state, Deck deck);
+
+  /**
+   * Called after each move.
+   * @param game the number of the game
+   * @param action the action made
+   * @param state the global state the action produced
+   **/
+  public void moveMade(long game, Action action, State state);
+
+  /**
+   * Called when the game is over, or an agent has made an illegal move.
+   * @param game the number of the game
+   * @param state the last state of the game
+   * @param score the score of the game, or -1 if an agent made an illegal move
+   **/
+  public void gameEnded(long game, State state, int score);
+
+}
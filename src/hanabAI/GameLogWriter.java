@@ -0,0 +1,121 @@
+package hanabAI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A GameListener that streams a compact, line delimited log of games to a file.
+ * Each thread formats its lines into its own buffer, which is written to the file channel when it fills,
+ * so the cost of logging a move is the same however many games are played, and no text is kept in memory.
+ * Lines from different games may be interleaved, but each line is complete, and starts with its event and game number:
+ * <pre>
+ * S game players              the game has been dealt
+ * M game order code hints fuse score
+ *                             a move, where order is the order of the state it produced,
+ *                             and code is the 16 bit action code described in Action.encode()
+ * E game order score          the game is over, with score -1 if an agent made an illegal move
+ * </pre>
+ * The buffers belong to the writer, keyed by thread, and are released when it is closed,
+ * so pool threads that outlive the writer do not keep them.
+ * The writer must be closed once every game has ended, to write the remaining lines.
+ **/
+public class GameLogWriter implements GameListener, Closeable{
+
+  /**The size of each thread's buffer. A line is never longer than 64 bytes.**/
+  private static final int BUFFER_SIZE = 1<<16;
+  private static final int MAX_LINE = 64;
+
+  private FileChannel channel;
+  private ConcurrentHashMap<Thread, ByteBuffer> buffers = new ConcurrentHashMap<Thread, ByteBuffer>();
+
+  /**
+   * Opens a log file, replacing any existing file.
+   * @param path the file to write
+   * @throws IOException if the file cannot be opened
+   **/
+  public GameLogWriter(Path path) throws IOException{
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  public void gameStarted(long game, State state, Deck deck){
+    ByteBuffer b = line('S', game);
+    put(b, state.getPlayerCount());
+    end(b);
+  }
+
+  public void moveMade(long game, Action action, State state){
+    ByteBuffer b = line('M', game);
+    put(b, state.getOrder());
+    put(b, action.encode());
+    put(b, state.getHintTokens());
+    put(b, state.getFuseTokens());
+    put(b, state.getScore());
+    end(b);
+  }
+
+  public void gameEnded(long game, State state, int score){
+    ByteBuffer b = line('E', game);
+    put(b, state.getOrder());
+    put(b, score);
+    end(b);
+  }
+
+  /**
+   * Writes all buffered lines, releases the buffers, and closes the file.
+   * @throws IOException if the lines cannot be written
+   **/
+  public void close() throws IOException{
+    try{
+      for(ByteBuffer b: buffers.values()) flush(b);
+    }
+    finally{
+      buffers.clear();
+      channel.close();
+    }
+  }
+
+  //starts a line in this thread's buffer, writing the buffer out first if the line might not fit
+  private ByteBuffer line(char event, long game){
+    ByteBuffer b = buffers.computeIfAbsent(Thread.currentThread(), t -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    if(b.remaining()<MAX_LINE){
+      try{flush(b);}
+      catch(IOException e){throw new UncheckedIOException(e);}
+    }
+    b.put((byte)event);
+    put(b, game);
+    return b;
+  }
+
+  //appends a space and the decimal digits of n, without creating a String.
+  //The digits are taken from -|n|, since -Long.MIN_VALUE is not a long.
+  private static void put(ByteBuffer b, long n){
+    b.put((byte)' ');
+    if(n<0) b.put((byte)'-');
+    else n = -n;
+    int start = b.position();
+    do{
+      b.put((byte)('0'-n%10));
+      n /= 10;
+    }while(n<0);
+    for(int i = start, j = b.position()-1; i<j; i++, j--){
+      byte t = b.get(i);
+      b.put(i, b.get(j));
+      b.put(j, t);
+    }
+  }
+
+  private static void end(ByteBuffer b){b.put((byte)'\n');}
+
+  //writes the complete lines in a buffer, holding the lock so lines from different threads are never interleaved
+  private synchronized void flush(ByteBuffer b) throws IOException{
+    b.flip();
+    while(b.hasRemaining()) channel.write(b);
+    b.clear();
+  }
+}
@@ -0,0 +1,182 @@
+package hanabAI;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and allocations collected from the game loop, which may be shared by games on many threads.
+ * For every agent, named by toString, the time taken by each decision is recorded,
+ * along with the time the game spends hiding hands and applying moves.
+ * A BatchAgent chooses many moves in one call, so for it the time of each call is recorded instead, with the number of moves chosen.
+ * Where the JVM can count the bytes allocated by a thread, the allocations made during decisions are counted for each agent,
+ * and the allocations made by the game itself are counted separately.
+ **/
+public class GameMetrics{
+
+  //the JVM's per thread allocation counters, or null if they are not available
+  private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+  private final ConcurrentHashMap<String, LatencyHistogram> decisions = new ConcurrentHashMap<String, LatencyHistogram>();
+  private final ConcurrentHashMap<String, LongAdder> decisionBytes = new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentHashMap<String, LatencyHistogram> batches = new ConcurrentHashMap<String, LatencyHistogram>();
+  private final ConcurrentHashMap<String, LongAdder> batchDecisions = new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentHashMap<String, LongAdder> batchBytes = new ConcurrentHashMap<String, LongAdder>();
+  private final LatencyHistogram hideHand = new LatencyHistogram();
+  private final LatencyHistogram nextState = new LatencyHistogram();
+  private final LongAdder gameBytes = new LongAdder();
+  private final ConcurrentHashMap<String, LongAdder> timeouts = new ConcurrentHashMap<String, LongAdder>();
+
+  /**
+   * @return true if allocated bytes are being counted
+   **/
+  public static boolean isAllocationCounted(){return THREADS!=null;}
+
+  /**
+   * @return the names of the agents that have made decisions
+   **/
+  public Set<String> getAgents(){return new TreeSet<String>(decisions.keySet());}
+
+  /**
+   * @return the names of the batch agents that have made decisions in batches
+   **/
+  public Set<String> getBatchAgents(){return new TreeSet<String>(batches.keySet());}
+
+  /**
+   * Gets the time taken by an agent's decisions.
+   * @param agent the name of the agent
+   * @return the histogram of decision times, or null if the agent has made no decisions
+   **/
+  public LatencyHistogram getDecisionLatency(String agent){return decisions.get(agent);}
+
+  /**
+   * Gets the bytes allocated by an agent while making decisions.
+   * @param agent the name of the agent
+   * @return the total bytes allocated, or -1 if allocations are not being counted
+   **/
+  public long getDecisionBytes(String agent){
+    if(!isAllocationCounted()) return -1;
+    LongAdder bytes = decisionBytes.get(agent);
+    return bytes==null?0:bytes.sum();
+  }
+
+  /**
+   * Gets the time taken by a batch agent's calls, each of which chose the moves of several games.
+   * @param agent the name of the agent
+   * @return the histogram of call times, or null if the agent has made no calls
+   **/
+  public LatencyHistogram getBatchLatency(String agent){return batches.get(agent);}
+
+  /**
+   * Gets the number of moves a batch agent chose in all its calls.
+   * @param agent the name of the agent
+   * @return the number of moves
+   **/
+  public long getBatchDecisions(String agent){
+    LongAdder count = batchDecisions.get(agent);
+    return count==null?0:count.sum();
+  }
+
+  /**
+   * Gets the bytes allocated by a batch agent in its calls.
+   * @param agent the name of the agent
+   * @return the total bytes allocated, or -1 if allocations are not being counted
+   **/
+  public long getBatchBytes(String agent){
+    if(!isAllocationCounted()) return -1;
+    LongAdder bytes = batchBytes.get(agent);
+    return bytes==null?0:bytes.sum();
+  }
+
+  /**
+   * Gets the number of moves where an agent missed the deadline of a MoveTimer and had the fallback move made for it.
+   * @param agent the name of the agent
+   * @return the number of missed deadlines
+   **/
+  public long getTimeouts(String agent){
+    LongAdder count = timeouts.get(agent);
+    return count==null?0:count.sum();
+  }
+
+  /**
+   * @return the histogram of the time taken to hide the next player's hand before each decision
+   **/
+  public LatencyHistogram getHideHandLatency(){return hideHand;}
+
+  /**
+   * @return the histogram of the time taken to apply each move to the state
+   **/
+  public LatencyHistogram getNextStateLatency(){return nextState;}
+
+  /**
+   * @return the bytes allocated by the game while hiding hands and applying moves, or -1 if allocations are not being counted
+   **/
+  public long getGameBytes(){return isAllocationCounted()?gameBytes.sum():-1;}
+
+  /**
+   * Summarises the metrics, with a line for each agent followed by the game's own costs.
+   * @return a description of the metrics
+   **/
+  public String toString(){
+    StringBuilder sb = new StringBuilder("Decisions:");
+    for(String agent: getAgents()){
+      LatencyHistogram h = decisions.get(agent);
+      sb.append("\n  ").append(agent).append(": ").append(h);
+      if(isAllocationCounted() && h.getCount()>0) sb.append(" alloc=").append(getDecisionBytes(agent)/h.getCount()).append("B/decision");
+      if(getTimeouts(agent)>0) sb.append(" timeouts=").append(getTimeouts(agent));
+    }
+    for(String agent: getBatchAgents()){
+      LatencyHistogram h = batches.get(agent);
+      long moves = getBatchDecisions(agent);
+      sb.append("\n  ").append(agent).append(" (batches): ").append(h);
+      if(h.getCount()>0) sb.append(String.format(" moves/batch=%.1f", moves/(double)h.getCount()));
+      if(isAllocationCounted() && moves>0) sb.append(" alloc=").append(getBatchBytes(agent)/moves).append("B/decision");
+    }
+    sb.append("\nhideHand: ").append(hideHand);
+    sb.append("\nnextState: ").append(nextState);
+    long moves = nextState.getCount();
+    if(isAllocationCounted() && moves>0) sb.append("\nGame alloc: ").append(gameBytes.sum()/moves).append("B/move");
+    return sb.toString();
+  }
+
+  //the bytes allocated so far by the current thread, or 0 if allocations are not counted
+  long allocatedBytes(){
+    return THREADS==null?0:THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  //records the time and allocation of one decision by an agent
+  void recordDecision(String agent, long nanos, long bytes){
+    decisions.computeIfAbsent(agent, a -> new LatencyHistogram()).record(nanos);
+    if(THREADS!=null) decisionBytes.computeIfAbsent(agent, a -> new LongAdder()).add(bytes);
+  }
+
+  //records the time and allocation of one call in which a batch agent chose count moves
+  void recordBatch(String agent, long nanos, long bytes, int count){
+    batches.computeIfAbsent(agent, a -> new LatencyHistogram()).record(nanos);
+    batchDecisions.computeIfAbsent(agent, a -> new LongAdder()).add(count);
+    if(THREADS!=null) batchBytes.computeIfAbsent(agent, a -> new LongAdder()).add(bytes);
+  }
+
+  void recordTimeout(String agent){timeouts.computeIfAbsent(agent, a -> new LongAdder()).increment();}
+
+  void recordHideHand(long nanos){hideHand.record(nanos);}
+
+  void recordNextState(long nanos){nextState.record(nanos);}
+
+  void recordGameBytes(long bytes){gameBytes.add(bytes);}
+
+  //the platform's thread bean if it can count allocations, enabling the count if needed
+  private static com.sun.management.ThreadMXBean allocationCounter(){
+    try{
+      java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if(!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+      if(!threads.isThreadAllocatedMemorySupported()) return null;
+      if(!threads.isThreadAllocatedMemoryEnabled()) threads.setThreadAllocatedMemoryEnabled(true);
+      return threads;
+    }
+    catch(UnsupportedOperationException | SecurityException e){return null;}
+  }
+}
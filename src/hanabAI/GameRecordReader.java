@@ -0,0 +1,148 @@
+package hanabAI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file of game records written by GameRecordWriter.
+ * The file is memory mapped, in segments of whole records when it is larger than a single mapping allows,
+ * so any game can be read or replayed directly by its index in the file, without reading the games before it.
+ **/
+public class GameRecordReader implements Closeable{
+
+  /**The most records mapped by a single buffer**/
+  private static final int RECORDS_PER_SEGMENT = Integer.MAX_VALUE/GameRecordWriter.RECORD_SIZE;
+
+  private FileChannel channel;
+  private MappedByteBuffer[] segments;
+  private long size;
+
+  /**
+   * Opens and maps a record file.
+   * @param path the file to read
+   * @throws IOException if the file cannot be read, or is not a game record file
+   **/
+  public GameRecordReader(Path path) throws IOException{
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    try{
+      java.nio.ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GameRecordWriter.HEADER_SIZE);
+      if(header.getInt(0)!=GameRecordWriter.MAGIC || header.getInt(4)!=GameRecordWriter.VERSION
+          || header.getInt(8)!=GameRecordWriter.RECORD_SIZE)
+        throw new IOException("Not a game record file: "+path);
+      size = (channel.size()-GameRecordWriter.HEADER_SIZE)/GameRecordWriter.RECORD_SIZE;
+      segments = new MappedByteBuffer[(int)((size+RECORDS_PER_SEGMENT-1)/RECORDS_PER_SEGMENT)];
+      for(int i = 0; i<segments.length; i++){
+        long first = (long)i*RECORDS_PER_SEGMENT;
+        long records = Math.min(RECORDS_PER_SEGMENT, size-first);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            GameRecordWriter.HEADER_SIZE+first*GameRecordWriter.RECORD_SIZE, records*GameRecordWriter.RECORD_SIZE);
+      }
+    }
+    catch(IOException e){
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**@return the number of games in the file**/
+  public long size(){return size;}
+
+  /**
+   * Gets the game number of a record
+   * @param index the index of the record in the file
+   * @return the game number, which is the deck seed for games played by a Tournament
+   **/
+  public long getGame(long index){return segment(index).getLong(offset(index)+GameRecordWriter.GAME);}
+
+  /**
+   * Gets the number of players of a game
+   * @param index the index of the record in the file
+   * @return the number of players
+   **/
+  public int getPlayers(long index){return segment(index).get(offset(index)+GameRecordWriter.PLAYERS);}
+
+  /**
+   * Gets the recorded score of a game
+   * @param index the index of the record in the file
+   * @return the score, or -1 if an agent made an illegal move
+   **/
+  public int getScore(long index){return segment(index).get(offset(index)+GameRecordWriter.SCORE);}
+
+  /**
+   * Gets the number of moves in a game
+   * @param index the index of the record in the file
+   * @return the number of moves made
+   **/
+  public int getMoves(long index){return segment(index).getShort(offset(index)+GameRecordWriter.MOVES);}
+
+  /**
+   * Gets the code of a move, as given by Action.encode()
+   * @param index the index of the record in the file
+   * @param move the index of the move, from 0
+   * @return the code of the action
+   **/
+  public int getActionCode(long index, int move){
+    if(move<0 || move>=getMoves(index)) throw new ArrayIndexOutOfBoundsException("No move "+move);
+    return segment(index).getShort(offset(index)+GameRecordWriter.ACTIONS+2*move)&0xFFFF;
+  }
+
+  /**
+   * Gets a full deck in the order the game was dealt from
+   * @param index the index of the record in the file
+   * @return a new deck with the recorded order
+   **/
+  public Deck getDeck(long index){
+    MappedByteBuffer b = segment(index);
+    int start = offset(index)+GameRecordWriter.DECK;
+    int[] order = new int[Deck.SIZE];
+    for(int i = 0; i<order.length; i++) order[i] = b.get(start+i);
+    return new Deck(order);
+  }
+
+  /**
+   * Replays a whole game through State.nextState.
+   * @param index the index of the record in the file
+   * @return the final state of the game, with its full history
+   * @throws IllegalActionException if a recorded move is not legal, which means the record is corrupt
+   **/
+  public State replay(long index) throws IllegalActionException{return replay(index, getMoves(index));}
+
+  /**
+   * Replays the first moves of a game through State.nextState.
+   * The players are named "Player 0", "Player 1" and so on.
+   * @param index the index of the record in the file
+   * @param moves the number of moves to replay
+   * @return the state after the given number of moves, with its full history
+   * @throws IllegalActionException if a recorded move is not legal, which means the record is corrupt
+   **/
+  public State replay(long index, int moves) throws IllegalActionException{
+    String[] names = new String[getPlayers(index)];
+    for(int i = 0; i<names.length; i++) names[i] = "Player "+i;
+    Deck deck = getDeck(index);
+    State state = new State(names, deck);
+    for(int m = 0; m<moves; m++) state = state.nextState(getActionCode(index, m), deck);
+    return state;
+  }
+
+  /**
+   * Unmaps the file, as far as the JVM allows, and closes it.
+   * @throws IOException if the file cannot be closed
+   **/
+  public void close() throws IOException{
+    segments = null;
+    channel.close();
+  }
+
+  private MappedByteBuffer segment(long index){
+    if(index<0 || index>=size) throw new ArrayIndexOutOfBoundsException("No game "+index);
+    return segments[(int)(index/RECORDS_PER_SEGMENT)];
+  }
+
+  private static int offset(long index){
+    return (int)(index%RECORDS_PER_SEGMENT)*GameRecordWriter.RECORD_SIZE;
+  }
+}
@@ -0,0 +1,131 @@
+package hanabAI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A GameListener that archives games as fixed width binary records, to be read back by GameRecordReader.
+ * The file starts with a header of HEADER_SIZE bytes (the magic number, the version, the record size and the maximum number of moves),
+ * followed by one record of RECORD_SIZE bytes per game, in the order the games ended:
+ * <pre>
+ * long   game         the game number, which is the seed of the deck for games played by a Tournament
+ * byte[] deck         the order of the deck, as the 50 indices into Card.getDeck() given by Deck.getOrder()
+ * byte   players      the number of players
+ * byte   score        the final score, or -1 if an agent made an illegal move
+ * short  moves        the number of moves made
+ * short[] actions     the code of each move, as given by Action.encode(), padded to MAX_MOVES with zeros
+ * </pre>
+ * Each game in progress has its own record, keyed by the game number, so games played in lockstep on one thread,
+ * or in parallel on many, can share a writer as long as the games in progress have different numbers.
+ * Each thread copies the records of the games it ends into its own buffer, and whole buffers are written to the file.
+ * The buffers belong to the writer, keyed by thread, and are released when it is closed.
+ * The writer must be closed once every game has ended.
+ **/
+public class GameRecordWriter implements GameListener, Closeable{
+
+  /**Identifies a game record file**/
+  public static final int MAGIC = 0x48414E42;
+  /**The version of the record format**/
+  public static final int VERSION = 1;
+  /**The most moves a game can take. A game can not last more than 100 moves.**/
+  public static final int MAX_MOVES = 128;
+  /**The size of the file header in bytes**/
+  public static final int HEADER_SIZE = 16;
+  /**The size of each game record in bytes**/
+  public static final int RECORD_SIZE = 320;
+
+  //offsets of the fields of a record
+  static final int GAME = 0, DECK = 8, PLAYERS = 58, SCORE = 59, MOVES = 60, ACTIONS = 62;
+
+  /**The number of records buffered by each thread**/
+  private static final int BUFFERED_RECORDS = 200;
+
+  private FileChannel channel;
+  private ConcurrentHashMap<Thread, ByteBuffer> buffers = new ConcurrentHashMap<Thread, ByteBuffer>();
+  //the records of the games in progress, and spare records from games that have ended
+  private ConcurrentHashMap<Long, ByteBuffer> live = new ConcurrentHashMap<Long, ByteBuffer>();
+  private ConcurrentLinkedQueue<ByteBuffer> spare = new ConcurrentLinkedQueue<ByteBuffer>();
+
+  /**
+   * Creates a record file, replacing any existing file.
+   * @param path the file to write
+   * @throws IOException if the file cannot be created
+   **/
+  public GameRecordWriter(Path path) throws IOException{
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(MAX_MOVES).flip();
+    while(header.hasRemaining()) channel.write(header);
+  }
+
+  /**
+   * @throws IllegalStateException if a game with the same number is already in progress
+   **/
+  public void gameStarted(long game, State state, Deck deck){
+    ByteBuffer r = spare.poll();
+    if(r==null) r = ByteBuffer.allocate(RECORD_SIZE);
+    for(int i = 0; i<RECORD_SIZE; i++) r.put(i, (byte)0);
+    r.putLong(GAME, game);
+    int[] order = deck.getOrder();
+    for(int i = 0; i<order.length; i++) r.put(DECK+i, (byte)order[i]);
+    r.put(PLAYERS, (byte)state.getPlayerCount());
+    if(live.putIfAbsent(game, r)!=null) throw new IllegalStateException("Game "+game+" is already in progress");
+  }
+
+  public void moveMade(long game, Action action, State state){
+    ByteBuffer r = record(game);
+    int move = state.getOrder()-1;
+    if(move>=MAX_MOVES) throw new IllegalStateException("Game "+game+" is longer than "+MAX_MOVES+" moves");
+    r.putShort(ACTIONS+2*move, (short)action.encode());
+    r.putShort(MOVES, (short)(move+1));
+  }
+
+  public void gameEnded(long game, State state, int score){
+    ByteBuffer r = record(game);
+    live.remove(game);
+    r.put(SCORE, (byte)score);
+    ByteBuffer b = buffers.computeIfAbsent(Thread.currentThread(), t -> ByteBuffer.allocateDirect(RECORD_SIZE*BUFFERED_RECORDS));
+    r.clear();
+    b.put(r);
+    spare.add(r);
+    if(!b.hasRemaining()){
+      try{flush(b);}
+      catch(IOException e){throw new UncheckedIOException(e);}
+    }
+  }
+
+  /**
+   * Writes all buffered records, releases the buffers, and closes the file.
+   * @throws IOException if the records cannot be written
+   **/
+  public void close() throws IOException{
+    try{
+      for(ByteBuffer b: buffers.values()) flush(b);
+    }
+    finally{
+      buffers.clear();
+      channel.close();
+    }
+  }
+
+  //the record of a game in progress
+  private ByteBuffer record(long game){
+    ByteBuffer r = live.get(game);
+    if(r==null) throw new IllegalStateException("Game "+game+" has not started");
+    return r;
+  }
+
+  //writes the complete records in a buffer, holding the lock so records from different threads are never interleaved
+  private synchronized void flush(ByteBuffer b) throws IOException{
+    b.flip();
+    while(b.hasRemaining()) channel.write(b);
+    b.clear();
+  }
+}
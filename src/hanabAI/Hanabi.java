@@ -1,5 +1,10 @@
 package hanabAI;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A class for running a single game of Hanabi.
@@ -10,16 +15,38 @@ public class Hanabi{
 
   private Agent[] players;
   private State state;
-  private java.util.Stack<Card> deck;
+  private Deck deck;
+  private GameMetrics metrics;
+  private MoveTimer timer;
+  private AtomicBoolean[] deciding;//true while a timed decision is running for a player
+  private int timeouts;
+  private long decisionBytes;//the allocation of the last timed decision, measured on the timer's thread
 
   /**
-   * Initilaises the game.
+   * Initilaises the game with a randomly shuffled deck.
    * @throws IllegalArgumentException if there are not the right number of player
    * */ 
   public Hanabi(Agent[] agents) throws IllegalArgumentException{
+    this(agents, new Deck(new java.util.SplittableRandom()));
+  }
+
+  /**
+   * Initilaises the game with a deck shuffled from the given seed, so that the deal can be reproduced.
+   * @throws IllegalArgumentException if there are not the right number of player
+   * */ 
+  public Hanabi(Agent[] agents, long seed) throws IllegalArgumentException{
+    this(agents, new Deck(seed));
+  }
+
+  /**
+   * Initilaises the game with the given deck.
+   * @param deck a full deck, which will be drawn from as the game is played
+   * @throws IllegalArgumentException if there are not the right number of player, or the deck is not full
+   * */ 
+  public Hanabi(Agent[] agents, Deck deck) throws IllegalArgumentException{
     //check agents between 2 and 5
     players = agents;
-    deck = Card.shuffledDeck();
+    this.deck = deck;
     String[] s = new String[agents.length];
     for(int i=0; i<s.length; i++)s[i] = agents[i].toString();
     state = new State(s, deck);
@@ -31,14 +58,7 @@ public class Hanabi{
    * @return the score for the game
    **/
   public int play(){
-    try{
-      while(!state.gameOver()){
-        int p = state.getNextPlayer();
-        State localState = state.hideHand(p);
-        state = state.nextState(players[p].doAction(localState),deck);
-      }
-      return state.getScore();
-    }
+    try{return run(null, 0);}
     catch(IllegalActionException e){return -1;}
   }
 
@@ -48,16 +68,14 @@ public class Hanabi{
    * @param log a StringBuffer containing a description of the game
    * @return the score of the game
    **/
-  public int play(StringBuffer log){
+  public int play(final StringBuffer log){
     log.append(state);
     try{
-      while(!state.gameOver()){
-        int p = state.getNextPlayer();
-        State localState = state.hideHand(p);
-        state = state.nextState(players[p].doAction(localState),deck);
-        log.append(state.toString());
-      }
-      return state.getScore();
+      return run(new GameListener(){
+        public void gameStarted(long game, State state, Deck deck){}
+        public void moveMade(long game, Action action, State state){log.append(state.toString());}
+        public void gameEnded(long game, State state, int score){}
+      }, 0);
     }
     catch(IllegalActionException e){
       e.printStackTrace();
@@ -65,6 +83,170 @@ public class Hanabi{
     }
   }
 
+  /**
+   * Plays the game, reporting each move to a listener.
+   * The agents will execute their strategies until the game is complete and a number is returned.
+   * @param listener receives the start of the game, every move, and the end of the game
+   * @param game the number the listener is given for this game
+   * @return the score of the game, or -1 if an agent made an illegal move
+   **/
+  public int play(GameListener listener, long game){
+    try{return run(listener, game);}
+    catch(IllegalActionException e){
+      listener.gameEnded(game, state, -1);
+      return -1;
+    }
+  }
+
+  /**
+   * Sets the metrics that play records the time and allocation of each move to.
+   * @param metrics the metrics, which may be shared with other games, or null to record nothing
+   **/
+  public void setMetrics(GameMetrics metrics){this.metrics = metrics;}
+
+  /**
+   * Sets a time limit on each move.
+   * Agents then decide on the timer's threads, and a player who misses the deadline has the timer's fallback move made for them.
+   * A DeadlineAgent is given the deadline of each move.
+   * @param timer the timer, which may be shared with other games, or null for no time limit
+   **/
+  public void setMoveTimer(MoveTimer timer){
+    this.timer = timer;
+    deciding = new AtomicBoolean[players.length];
+    for(int i = 0; i<players.length; i++) deciding[i] = new AtomicBoolean();
+  }
+
+  /**
+   * @return the number of moves in this game where a player missed the deadline
+   **/
+  public int getTimeouts(){return timeouts;}
+
+  /**
+   * Gets the current state of the game, including every player's hand.
+   * This is for the harness stepping the game, and must never be given to an agent.
+   * @return the global state of the game
+   **/
+  public State getState(){return state;}
+
+  //the deck still to be drawn, which is full until the first move
+  Deck getDeck(){return deck;}
+
+  /**
+   * Gets the agent sitting in a seat.
+   * @param seat the index of the player
+   * @return the agent playing in that seat
+   **/
+  public Agent getAgent(int seat){return players[seat];}
+
+  /**
+   * Gets the state of the game as seen by the next player, for the harness to pass to that player's agent.
+   * @return the state with the next player's hand hidden
+   * @throws IllegalActionException if the game is over
+   **/
+  public State getLocalState() throws IllegalActionException{
+    return state.hideHand(state.getNextPlayer());
+  }
+
+  /**
+   * Advances the game by one move of the next player.
+   * This allows a harness to step many games together rather than calling play on each.
+   * @param action the action chosen by the next player's agent
+   * @return true if the game is over after the move
+   * @throws IllegalActionException if the action is not legal in the current state
+   **/
+  public boolean move(Action action) throws IllegalActionException{
+    state = state.nextState(action,deck);
+    return state.gameOver();
+  }
+
+  //the game loop, where listener may be null
+  private int run(GameListener listener, long game) throws IllegalActionException{
+    if(listener!=null) listener.gameStarted(game, state, deck);
+    while(!state.gameOver()) step(listener, game);
+    if(listener!=null) listener.gameEnded(game, state, state.getScore());
+    return state.getScore();
+  }
+
+  //asks the next player's agent for its move and makes it, exactly as play does, where listener may be null.
+  //A harness stepping many games uses this for agents that move one game at a time.
+  boolean step(GameListener listener, long game) throws IllegalActionException{
+    int p = state.getNextPlayer();
+    Action action;
+    if(metrics==null){
+      action = decide(p, state.hideHand(p));
+      move(action);
+    }
+    else action = measuredMove(p);
+    if(listener!=null) listener.moveMade(game, action, state);
+    return state.gameOver();
+  }
+
+  //makes the next player's move, recording the time and allocation of each phase
+  private Action measuredMove(int p) throws IllegalActionException{
+    long bytes0 = metrics.allocatedBytes();
+    long t0 = System.nanoTime();
+    State localState = state.hideHand(p);
+    long t1 = System.nanoTime();
+    long bytes1 = metrics.allocatedBytes();
+    decisionBytes = 0;
+    Action action = decide(p, localState);
+    long bytes2 = metrics.allocatedBytes();
+    long t2 = System.nanoTime();
+    state = state.nextState(action,deck);
+    long t3 = System.nanoTime();
+    long bytes3 = metrics.allocatedBytes();
+    metrics.recordHideHand(t1-t0);
+    metrics.recordDecision(players[p].toString(), t2-t1, bytes2-bytes1+decisionBytes);
+    metrics.recordNextState(t3-t2);
+    metrics.recordGameBytes(bytes1-bytes0+bytes3-bytes2);
+    return action;
+  }
+
+  //asks the player's agent for its move, within the time limit if there is one
+  private Action decide(int p, final State localState) throws IllegalActionException{
+    if(timer==null) return players[p].doAction(localState);
+    final Agent agent = players[p];
+    final AtomicBoolean busy = deciding[p];
+    if(busy.get()) return timedOut(p);//still running an earlier move
+    final long deadline = System.nanoTime()+timer.getLimit();
+    final boolean measure = metrics!=null;
+    //the flag is set by the decision itself, so a decision cancelled before it starts never leaves the seat busy
+    Future<Action> decision = timer.submit(() -> {
+      busy.set(true);
+      try{
+        long bytes = measure?metrics.allocatedBytes():0;
+        Action a = agent instanceof DeadlineAgent?((DeadlineAgent)agent).doAction(localState, deadline):agent.doAction(localState);
+        if(measure && !Thread.currentThread().isInterrupted()) decisionBytes = metrics.allocatedBytes()-bytes;
+        return a;
+      }
+      finally{busy.set(false);}
+    });
+    try{return decision.get(deadline-System.nanoTime(), TimeUnit.NANOSECONDS);}
+    catch(TimeoutException e){
+      decision.cancel(true);
+      return timedOut(p);
+    }
+    catch(InterruptedException e){
+      decision.cancel(true);
+      Thread.currentThread().interrupt();
+      return timedOut(p);
+    }
+    catch(ExecutionException e){
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+  }
+
+  //counts a missed deadline and returns the fallback move
+  private Action timedOut(int p) throws IllegalActionException{
+    timeouts++;
+    timer.timedOut();
+    if(metrics!=null) metrics.recordTimeout(players[p].toString());
+    return MoveTimer.fallbackAction(state, p, players[p].toString());
+  }
+
   public static String critique(int score){
     if(score==0) return "Tragic: The pyrotechnicians are obliterated by their own incompetence.\n";
     if(score<6) return "Horrible: boos from the crowd.\n";
@@ -0,0 +1,99 @@
+package hanabAI;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of durations in nanoseconds, which many threads may record to at once.
+ * Each power of two is split into 16 equal buckets, so a duration is reported to within 1/16 of its true value,
+ * using a fixed array of counters whatever the number of values recorded.
+ * Durations above 2^40 nanoseconds (about 18 minutes) are counted in the last bucket.
+ **/
+public class LatencyHistogram{
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1<<SUB_BITS;
+  private static final int MAX_POWER = 40;
+  private static final int BUCKETS = (MAX_POWER-SUB_BITS+1)*SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a single duration.
+   * @param nanos the duration in nanoseconds, where negative durations are counted as 0
+   **/
+  public void record(long nanos){
+    if(nanos<0) nanos = 0;
+    counts.incrementAndGet(index(nanos));
+    count.incrementAndGet();
+    total.addAndGet(nanos);
+    long m = max.get();
+    while(nanos>m && !max.compareAndSet(m, nanos)) m = max.get();
+  }
+
+  /**
+   * @return the number of durations recorded
+   **/
+  public long getCount(){return count.get();}
+
+  /**
+   * @return the mean duration in nanoseconds, or 0 if nothing has been recorded
+   **/
+  public double getMean(){
+    long n = count.get();
+    return n==0?0:((double)total.get())/n;
+  }
+
+  /**
+   * @return the longest duration recorded in nanoseconds
+   **/
+  public long getMax(){return max.get();}
+
+  /**
+   * Gets a percentile of the recorded durations.
+   * The value reported is the top of the bucket holding the percentile, so it is never less than the true value.
+   * @param percent the percentile, between 0 and 100
+   * @return the duration in nanoseconds below which the given percent of durations fall, or 0 if nothing has been recorded
+   * @throws IllegalArgumentException if percent is out of range
+   **/
+  public long getPercentile(double percent) throws IllegalArgumentException{
+    if(percent<0 || percent>100) throw new IllegalArgumentException("percentile must be between 0 and 100");
+    long n = count.get();
+    if(n==0) return 0;
+    long target = Math.max(1, (long)Math.ceil(n*percent/100));
+    long seen = 0;
+    for(int i = 0; i<BUCKETS; i++){
+      seen += counts.get(i);
+      if(seen>=target) return Math.min(highest(i), max.get());
+    }
+    return max.get();
+  }
+
+  /**
+   * Describes the histogram in microseconds.
+   * @return the count, mean, median, 99th percentile and maximum
+   **/
+  public String toString(){
+    return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+        getCount(), getMean()/1000, getPercentile(50)/1000.0, getPercentile(99)/1000.0, getMax()/1000.0);
+  }
+
+  //the bucket of a duration: values below SUB_BUCKETS have a bucket each, larger values keep their top SUB_BITS+1 bits
+  private static int index(long nanos){
+    if(nanos<SUB_BUCKETS) return (int)nanos;
+    if(nanos>=1L<<MAX_POWER) return BUCKETS-1;
+    int shift = 63-Long.numberOfLeadingZeros(nanos)-SUB_BITS;
+    return (shift+1)*SUB_BUCKETS+(int)(nanos>>>shift)-SUB_BUCKETS;
+  }
+
+  //the largest duration counted in a bucket
+  private static long highest(int index){
+    if(index<SUB_BUCKETS) return index;
+    int shift = index/SUB_BUCKETS-1;
+    long sub = index%SUB_BUCKETS+SUB_BUCKETS;
+    return ((sub+1)<<shift)-1;
+  }
+}
@@ -0,0 +1,104 @@
+package hanabAI;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A time limit on each move, with a bounded pool of daemon threads to run the agents' decisions on,
+ * so that a game can move on when an agent overruns.
+ * An agent that misses its deadline has a fallback move made for it:
+ * it discards its first card if there are fewer than 8 hint tokens and it holds a card,
+ * otherwise hints the colour of the first card of the next player holding any cards if there is a hint token,
+ * and otherwise plays its first card.
+ * A decision that overruns is interrupted, and until it finishes the agent is not asked for another move in that game,
+ * the fallback move being made for it instead.
+ * A timer may be shared by many games, and should be closed when they are finished.
+ **/
+public class MoveTimer implements AutoCloseable{
+
+  private final long limit;
+  private final ExecutorService executor;
+  private final AtomicInteger timeouts = new AtomicInteger();
+
+  /**
+   * Creates a timer.
+   * @param limit the time allowed for each move
+   * @param unit the unit of the limit
+   * @param threads the number of threads to run decisions on, which should be at least the number of games played at once
+   * @throws IllegalArgumentException if the limit or number of threads is not positive
+   **/
+  public MoveTimer(long limit, TimeUnit unit, int threads) throws IllegalArgumentException{
+    if(limit<=0 || threads<1) throw new IllegalArgumentException("limit and threads must be positive");
+    this.limit = unit.toNanos(limit);
+    final AtomicInteger count = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+      public Thread newThread(Runnable r){
+        Thread t = new Thread(r, "move-timer-"+count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * @return the time allowed for each move in nanoseconds
+   **/
+  public long getLimit(){return limit;}
+
+  /**
+   * @return the number of moves, across all games using this timer, where an agent missed its deadline
+   **/
+  public int getTimeouts(){return timeouts.get();}
+
+  /**
+   * Stops the timer's threads, interrupting any decisions still running.
+   **/
+  public void close(){executor.shutdownNow();}
+
+  //runs a decision on the timer's threads
+  Future<Action> submit(Callable<Action> decision){return executor.submit(decision);}
+
+  //counts a missed deadline
+  void timedOut(){timeouts.incrementAndGet();}
+
+  /**
+   * The move made for a player who misses their deadline.
+   * @param state the global state of the game, with every hand visible
+   * @param player the index of the player to move
+   * @param name the name of the player
+   * @return a discard of the player's first card if a hint token can be recovered,
+   * otherwise a colour hint to the next player holding cards if there is a hint token,
+   * or a play of the player's first card if no hint can be given
+   * @throws IllegalActionException if the player holds no cards and no hint can be given
+   **/
+  public static Action fallbackAction(State state, int player, String name) throws IllegalActionException{
+    ActionPool actions = state.getActionPool();
+    int first = firstCard(state.handView(player));
+    if(state.getHintTokens()<8 && first>=0) return actions.discard(player, first);
+    int players = state.getPlayerCount();
+    for(int i = 1; i<players && state.getHintTokens()>0; i++){
+      int receiver = (player+i)%players;
+      List<Card> hand = state.handView(receiver);
+      int c = firstCard(hand);
+      if(c<0) continue;
+      Colour colour = hand.get(c).getColour();
+      int mask = 0;
+      for(int j = 0; j<hand.size(); j++) if(hand.get(j)!=null && hand.get(j).getColour()==colour) mask |= 1<<j;
+      return actions.hintColour(player, receiver, colour, mask);
+    }
+    if(first>=0) return actions.play(player, first);
+    throw new IllegalActionException("No fallback move for "+name);
+  }
+
+  //the position of the first card in a hand, or -1 if it is empty
+  private static int firstCard(List<Card> hand){
+    for(int i = 0; i<hand.size(); i++) if(hand.get(i)!=null) return i;
+    return -1;
+  }
+}
@@ -0,0 +1,116 @@
+package hanabAI;
+
+/**
+ * Summary statistics for the scores of a set of Hanabi games.
+ * Each worker of a tournament fills its own instance, 
+ * and the instances are merged once the workers are done, so no locking is needed.
+ **/
+public class ScoreStats{
+
+  /**The number of games that completed**/
+  private long games;
+  /**The number of games that ended with an illegal action, or where an agent failed**/
+  private long failures;
+  /**The numbers of the failed games that were recorded with addFailure**/
+  private java.util.List<Long> failedGames = new java.util.ArrayList<Long>();
+  /**The sum of all scores**/
+  private long sum;
+  /**The sum of the squares of all scores**/
+  private long sumSquares;
+  /**The lowest score seen**/
+  private int min = Integer.MAX_VALUE;
+  /**The highest score seen**/
+  private int max = Integer.MIN_VALUE;
+  /**The number of games ending with each score from 0 to 25**/
+  private long[] histogram = new long[26];
+
+  /**
+   * Records the result of one game.
+   * @param score the score returned by Hanabi.play(), where -1 indicates the game failed.
+   **/
+  public void add(int score){
+    if(score<0 || score>25){failures++; return;}
+    games++;
+    sum+=score;
+    sumSquares+=score*score;
+    if(score<min) min = score;
+    if(score>max) max = score;
+    histogram[score]++;
+  }
+
+  /**
+   * Records a game that failed, keeping its number so it can be replayed.
+   * @param game the number of the game, which for a Tournament is the seed of the game's deck
+   **/
+  public void addFailure(long game){
+    failures++;
+    failedGames.add(game);
+  }
+
+  /**
+   * Adds the results recorded in another instance to this one.
+   * @param other the statistics to merge in
+   * @return this instance
+   **/
+  public ScoreStats merge(ScoreStats other){
+    games+=other.games;
+    failures+=other.failures;
+    failedGames.addAll(other.failedGames);
+    sum+=other.sum;
+    sumSquares+=other.sumSquares;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    for(int i = 0; i<histogram.length; i++) histogram[i]+=other.histogram[i];
+    return this;
+  }
+
+  /**@return the number of games that completed with a score**/
+  public long getGames(){return games;}
+
+  /**@return the number of games that ended with an illegal action, or where an agent failed**/
+  public long getFailures(){return failures;}
+
+  /**@return the numbers of the failed games recorded with addFailure, in ascending order**/
+  public long[] getFailedGames(){
+    long[] result = new long[failedGames.size()];
+    for(int i = 0; i<result.length; i++) result[i] = failedGames.get(i);
+    java.util.Arrays.sort(result);
+    return result;
+  }
+
+  /**@return the lowest score, or 0 if no games completed**/
+  public int getMin(){return games==0?0:min;}
+
+  /**@return the highest score, or 0 if no games completed**/
+  public int getMax(){return games==0?0:max;}
+
+  /**@return the mean score of the completed games**/
+  public double getMean(){return games==0?0:sum/(double)games;}
+
+  /**@return the standard deviation of the scores of the completed games**/
+  public double getStandardDeviation(){
+    if(games==0) return 0;
+    double mean = getMean();
+    return Math.sqrt(Math.max(0, sumSquares/(double)games - mean*mean));
+  }
+
+  /**
+   * Gets the number of games that finished with a given score
+   * @param score the score, between 0 and 25
+   * @return the number of completed games with that score
+   **/
+  public long getCount(int score){return histogram[score];}
+
+  /**
+   * A summary of the statistics
+   * @return the number of games, failures, mean, standard deviation and range of scores, and the numbers of the first failed games
+   **/
+  public String toString(){
+    String s = String.format("Games: %d, Failures: %d, Average Score: %.3f (sd %.3f), Min: %d, Max: %d",
+        games, failures, getMean(), getStandardDeviation(), getMin(), getMax());
+    long[] failed = getFailedGames();
+    if(failed.length==0) return s;
+    int shown = Math.min(10, failed.length);
+    return s+"\nFailed games: "+java.util.Arrays.toString(java.util.Arrays.copyOf(failed, shown))+(shown<failed.length?" and "+(failed.length-shown)+" more":"");
+  }
+}
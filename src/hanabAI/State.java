@@ -13,11 +13,11 @@ public class State implements Cloneable{
 
   /**The name of each of the players in the game**/
   private String[] players;
-  /**The stack of cards that have bee discarded, or incorrectly played**/
-  private Stack<Card> discards;
-  /**For each colour, the cards making up that firework so far**/
-  private Map<Colour,Stack<Card>> fireworks;
-  /**The hand of each player**/
+  /**The top of the pile of cards that have bee discarded, or incorrectly played, or null if there are none. The pile is shared with earlier states.**/
+  private Discard discards;
+  /**For each colour ordinal, the height of that firework so far**/
+  private int[] fireworks;
+  /**The hand of each player. A hand array is shared with other states until the hand changes, so it is never modified.**/
   private Card[][] hands;
   /**The order of this state in the game**/
   private int order=0;
@@ -27,14 +27,32 @@ public class State implements Cloneable{
   private int fuse=0;
   /**The observer of this state. This allows hidden information to be redacted**/
   private int observer=-1;
-  /**The previous State of the game, so that all states are accessible back to the first state (with a null previous state)**/
-  private State previousState;
-  /**A list of all moves made so far in the game, in the order they were played**/
-  private Action previousAction;
+  /**A list of all moves made so far in the game, in the order they were played. This state can see the first order moves.
+   * The log also keeps the card each move used, so previous states are rebuilt from it rather than kept alive.**/
+  private ActionLog log;
   /**The index of the next player to move**/
   private int nextPlayer=-1;
   /**The fnal play of the game (for when the deck runs out)**/
   private int finalAction=-1;
+  /**The sum of the heights of the fireworks, updated as cards are played**/
+  private int score=0;
+  /**The number of each card in the discard pile, indexed by colour ordinal*5+value-1**/
+  private int[] discardCounts;
+  /**The canonical actions for the players of this game**/
+  private ActionPool actions;
+
+  //a card in the discard pile, linked to the pile beneath it, so each state adds to the pile without copying it
+  private static final class Discard{
+    final Card card;
+    final Discard below;
+    final int size;
+
+    Discard(Card card, Discard below){
+      this.card = card;
+      this.below = below;
+      this.size = below==null?1:below.size+1;
+    }
+  }
 
   /**A constructor for the first state in the game
    * @param players the names of the players in the game, in an array by index
@@ -43,22 +61,75 @@ public class State implements Cloneable{
   public State(String[] players, Stack<Card> deck) throws IllegalArgumentException{
     if(players==null || players.length<2 || players.length >5 || deck == null || deck.size() !=50)
       throw new IllegalArgumentException("incorrect parameters");
-    this.players = players.clone();
-    discards = new Stack<Card>();
-    fireworks = new HashMap<Colour,Stack<Card>>();
-    for(Colour c: Colour.values())fireworks.put(c,new Stack<Card>());
-    hands = new Card[players.length][players.length>3?4:5];
+    init(players.clone());
+    for(int i = 0; i<hands.length; i++)
+      for(int j = 0; j<hands[i].length; j++) 
+        hands[i][j]=deck.pop();
+  }
+
+  /**A constructor for the first state in the game
+   * @param players the names of the players in the game, in an array by index
+   * @param deck the shuffled deck of cards to be used for the deal
+   * @throws IllegalArgumentException if arguments are null, or the wrong size**/
+  public State(String[] players, Deck deck) throws IllegalArgumentException{
+    if(players==null || players.length<2 || players.length >5 || deck == null || deck.size() !=50)
+      throw new IllegalArgumentException("incorrect parameters");
+    init(players.clone());
     for(int i = 0; i<hands.length; i++)
       for(int j = 0; j<hands[i].length; j++) 
         hands[i][j]=deck.pop();
+  }
+
+  /**A constructor for a global state with the given contents, used to view a CompactState as a State.
+   * @param players the names of the players in the game, which are not copied and must not be modified
+   * @param hands the hand of each player, which is not copied and must not be modified
+   * @param discards the discard pile
+   * @param heights the height of each firework, by colour ordinal
+   * @param previousState the state before this one, or null if it is not known
+   * @param previousAction the action that produced this state from previousState**/
+  State(String[] players, Card[][] hands, Stack<Card> discards, int[] heights, int order, int hints, int fuse,
+      int finalAction, State previousState, Action previousAction){
+    init(players);
+    this.hands = hands;
+    for(Card c: discards){
+      this.discards = new Discard(c, this.discards);
+      discardCounts[c.code()]++;
+    }
+    for(Colour c: Colour.values()){
+      fireworks[c.ordinal()] = heights[c.ordinal()];
+      score += heights[c.ordinal()];
+    }
+    this.order = order;
+    this.hints = hints;
+    this.fuse = fuse;
+    this.finalAction = finalAction;
+    this.nextPlayer = order%players.length;
+    if(previousState==null || previousAction==null) log = new ActionLog(order);
+    else{
+      try{log = previousState.logged(previousAction);}
+      catch(IllegalActionException e){throw new IllegalArgumentException(e);}
+    }
+  }
+
+  //sets up the tokens and empty piles of the first state, ready for the deal, keeping the given array of names
+  private void init(String[] players){
+    this.players = players;
+    discards = null;
+    fireworks = new int[Colour.values().length];
+    hands = new Card[players.length][players.length>3?4:5];
     order = 0;
     hints = 8;
     fuse = 3;
     observer = -1;  
     nextPlayer = 0;
     finalAction = -1;
+    score = 0;
+    discardCounts = new int[Card.CODES];
+    actions = ActionPool.forPlayers(players);
+    log = new ActionLog(0);
   }
 
+
   /**
    *A method to create the next state from the given state and a move.
    *This method will only work if no hand has been hidden (since it allows agents to infer the result of actions).
@@ -67,36 +138,78 @@ public class State implements Cloneable{
    *@throws IllegalActionException if the move is not legal in the current state, or one hand has been hidden.
    **/
   public State nextState(Action action, Stack<Card> deck) throws IllegalActionException{
+   checkTransition(action);
+   Card drawn = null;
+   if(drawsCard(action) && !deck.isEmpty()) drawn = deck.pop();
+   return transition(action, drawn, deck.isEmpty());
+  }
+
+  /**
+   *A method to create the next state from the given state and a move.
+   *This method will only work if no hand has been hidden (since it allows agents to infer the result of actions).
+   *@param deck the deck of cards
+   *@param action the action made
+   *@throws IllegalActionException if the move is not legal in the current state, or one hand has been hidden.
+   **/
+  public State nextState(Action action, Deck deck) throws IllegalActionException{
+   checkTransition(action);
+   Card drawn = null;
+   if(drawsCard(action) && !deck.isEmpty()) drawn = deck.pop();
+   return transition(action, drawn, deck.isEmpty());
+  }
+
+  /**
+   *A method to create the next state from the given state and the code of a move, without creating an Action.
+   *This method will only work if no hand has been hidden (since it allows agents to infer the result of actions).
+   *@param action the code of the action made, as given by Action.encode()
+   *@param deck the deck of cards
+   *@throws IllegalActionException if the code does not describe a move that is legal in the current state, or one hand has been hidden.
+   **/
+  public State nextState(int action, Deck deck) throws IllegalActionException{
+   return nextState(actions.get(action), deck);
+  }
+
+  /**
+   * Gets the canonical actions for the players of this game, so agents can choose moves without creating Actions.
+   * @return the pool of actions shared by every game with the same players
+   **/
+  public ActionPool getActionPool(){return actions;}
+
+  //throws an exception if the action cannot be applied to this state
+  private void checkTransition(Action action) throws IllegalActionException{
    if(!legalAction(action)) throw new IllegalActionException("Invalid action!: "+action);
    if(gameOver()) throw new IllegalActionException("Game Over!");
    if(observer!=-1) throw new IllegalActionException("Next state unavailable!");
+  }
+
+  //true if the action replaces a card in the player's hand
+  private static boolean drawsCard(Action action){
+   return action.getType()==ActionType.PLAY || action.getType()==ActionType.DISCARD;
+  }
+
+  //applies a legal action, where drawn is the card taken from the deck (or null) and exhausted is true if the deck is now empty
+  private State transition(Action action, Card drawn, boolean exhausted) throws IllegalActionException{
    State s = (State)this.clone();
    switch(action.getType()){
      case PLAY:
        Card c = hands[action.getPlayer()][action.getCard()];
-       Stack<Card> fw = fireworks.get(c.getColour());
-       if((fw.isEmpty() && c.getValue() == 1) || (!fw.isEmpty() && fw.peek().getValue()==c.getValue()-1)){
-         s.fireworks.get(c.getColour()).push(c);
-         if(s.fireworks.get(c.getColour()).size()==5 && s.hints<8) s.hints++;
+       int colour = c.getColour().ordinal();
+       if(fireworks[colour]==c.getValue()-1){
+         s.fireworks = fireworks.clone();
+         s.fireworks[colour]++;
+         s.score++;
+         if(s.fireworks[colour]==5 && s.hints<8) s.hints++;
        }
        else{
-         s.discards.push(c);
+         s.discard(c);
          s.fuse--;
        }
-       if(!deck.isEmpty()) s.hands[action.getPlayer()][action.getCard()] = deck.pop();
-       if(deck.isEmpty()){
-        if(finalAction==-1) s.finalAction = order+players.length;
-        s.hands[action.getPlayer()][action.getCard()] = null;
-       }
+       s.replaceCard(action.getPlayer(), action.getCard(), drawn, exhausted);
        break;  
      case DISCARD:
        c = hands[action.getPlayer()][action.getCard()];
-       s.discards.push(c);
-       if(!deck.isEmpty()) s.hands[action.getPlayer()][action.getCard()] = deck.pop();
-       if(deck.isEmpty()){
-        if(finalAction==-1) s.finalAction = order+players.length;
-        s.hands[action.getPlayer()][action.getCard()] = null;
-       }
+       s.discard(c);
+       s.replaceCard(action.getPlayer(), action.getCard(), drawn, exhausted);
        if(hints<8) s.hints++;
        break;
      case HINT_COLOUR: 
@@ -108,62 +221,167 @@ public class State implements Cloneable{
      default: break;
    }
    s.order++;
-   s.previousAction = action;
+   s.log = logged(action);
    s.nextPlayer = (nextPlayer+1)%players.length; 
-   s.previousState = this;  
    return s;
   }
 
+  //the log of the state reached by a legal action from this state, with the card the action used and its hidden effects
+  private ActionLog logged(Action action) throws IllegalActionException{
+   Card c = null;
+   byte effect = 0;
+   if(drawsCard(action)){
+     c = hands[action.getPlayer()][action.getCard()];
+     if(action.getType()==ActionType.PLAY){
+       int height = fireworks[c.getColour().ordinal()];
+       if(height!=c.getValue()-1) effect = ActionLog.MISPLAY;
+       else if(height==4 && hints<8) effect = ActionLog.BONUS_HINT;
+     }
+   }
+   return log.append(order, action, c, effect);
+  }
+
+  //rebuilds the global state before the last action, by undoing the action with the card and effects kept in the log
+  private State undo() throws IllegalActionException{
+   int last = order-1;
+   Action action = log.get(last);
+   Card c = log.getCard(last);
+   byte effect = log.getEffect(last);
+   State s = (State)this.clone();
+   s.observer = -1;
+   switch(action.getType()){
+     case PLAY:
+       if((effect&ActionLog.MISPLAY)!=0){
+         s.undiscard(c);
+         s.fuse++;
+       }
+       else{
+         s.fireworks = fireworks.clone();
+         s.fireworks[c.getColour().ordinal()]--;
+         s.score--;
+         if((effect&ActionLog.BONUS_HINT)!=0) s.hints--;
+       }
+       s.restoreCard(action.getPlayer(), action.getCard(), c);
+       break;
+     case DISCARD:
+       s.undiscard(c);
+       s.restoreCard(action.getPlayer(), action.getCard(), c);
+       s.hints--;
+       break;
+     default:
+       s.hints++;
+       break;
+   }
+   s.order = last;
+   s.nextPlayer = (nextPlayer+players.length-1)%players.length;
+   if(finalAction==last+players.length) s.finalAction = -1;
+   return s;
+  }
+
+  //removes the card an action discarded from the pile of a rebuilt state.
+  //The card is on top, unless the pile was given in another order by the adapter constructor.
+  private void undiscard(Card c){
+    if(discards.card.equals(c)) discards = discards.below;
+    else discards = without(discards, c);
+    discardCounts = discardCounts.clone();
+    discardCounts[c.code()]--;
+  }
+
+  //a copy of the pile with the highest occurrence of c removed
+  private static Discard without(Discard pile, Card c){
+    if(pile.card.equals(c)) return pile.below;
+    return new Discard(pile.card, without(pile.below, c));
+  }
+
+  //puts back the card a player used in a rebuilt state, copying only the player's hand
+  private void restoreCard(int player, int card, Card c){
+    hands = hands.clone();
+    hands[player] = hands[player].clone();
+    hands[player][card] = c;
+  }
+
+  //adds a card to the discard pile of a new state
+  private void discard(Card c){
+    discards = new Discard(c, discards);
+    discardCounts = discardCounts.clone();
+    discardCounts[c.code()]++;
+  }
+
+  //replaces the card a player has used in a new state, copying only the player's hand
+  private void replaceCard(int player, int card, Card drawn, boolean exhausted){
+    hands = hands.clone();
+    hands[player] = hands[player].clone();
+    if(drawn!=null) hands[player][card] = drawn;
+    if(exhausted){
+      if(finalAction==-1) finalAction = order+players.length;
+      hands[player][card] = null;
+    }
+  }
+
   /**
    *A method to create a local state from a global state. 
    *That is, if there is no current observer, the specified observer will have their hand hidden from them.
+   *The local state is a view that shares everything but the observer with this state, so no hands or piles are copied.
+   *Neither state is ever modified, so both may be shared between threads.
    *@param observer the player observing the game state
    *@throws IllegalActionException if the observer is out of bounds, or if the state is not global.
    **/
   public State hideHand(int observer) throws IllegalActionException{
-    if(this.observer==-1 && observer>=0 && observer < hands.length){
-      State local = (State) this.clone();
-      local.observer=observer;
-      return local;
-    }
+    if(this.observer==-1 && observer>=0 && observer < hands.length) return observedBy(observer);
     else throw new IllegalActionException("Hand already hidden, or observer out of bounds");
   }
+
+  //a view of this global state by the given observer, or this state if the observer is -1
+  private State observedBy(int observer){
+    if(observer==-1) return this;
+    State view = (State) this.clone();
+    view.observer = observer;
+    return view;
+  }
   
   /**
    * Test the legality of a Action.
    * If the observer of a state is specified, this mathod can only be applied to actions performed by the observer. 
+   * The test does not allocate, so search agents can call it freely.
    * @param a the move to be tested
-   * @return true if the move is legal in the current game state.
-   * @throws IllegalActionException
+   * @return true if the move is legal in the current game state. Discards are not legal when there are 8 hint tokens.
+   * @throws IllegalActionException if the state has an observer, and the action is not performed by the observer
    **/
   public boolean legalAction(Action a) throws IllegalActionException{
     if(observer!=-1 && a.getPlayer()!=observer) throw new IllegalActionException("Local states may only test the legality of observers moves");
     if(a.getPlayer()!=nextPlayer) return false;
     switch(a.getType()){
       case PLAY:
-        return (a.getCard()>=0 && a.getCard()<hands[nextPlayer].length); 
+        return (a.card()>=0 && a.card()<hands[nextPlayer].length); 
       case DISCARD: 
-        if(hints==8) throw new IllegalActionException("Discards cannot be made when there are 8 hint tokens");
-        return (a.getCard()>=0 && a.getCard()<hands[nextPlayer].length);
+        return (hints<8 && a.card()>=0 && a.card()<hands[nextPlayer].length);
       case HINT_COLOUR:
-        if(hints==0 || a.getHintReceiver() <0 || a.getHintReceiver()>players.length || a.getHintReceiver() == a.getPlayer()) return false; 
-        boolean[] hint = new boolean[hands[a.getHintReceiver()].length];
-        for(int i = 0; i<hint.length; i++){
-          Card c = hands[a.getHintReceiver()][i];
-          hint[i] = (c==null?null:c.getColour())==a.getColour();
-        }
-        return Arrays.equals(hint, a.getHintedCards());
+        if(hints==0 || a.hintee() <0 || a.hintee()>=players.length || a.hintee() == a.getPlayer()) return false; 
+        return a.hintLength()==hands[a.hintee()].length && a.hintMask()==colourMask(a.hintee(), a.colour());
       case HINT_VALUE:
-        if(hints==0 || a.getHintReceiver() <0 || a.getHintReceiver()>players.length || a.getHintReceiver() == a.getPlayer()) return false; 
-        hint = new boolean[hands[a.getHintReceiver()].length];
-        for(int i = 0; i<hint.length; i++){
-          Card c = hands[a.getHintReceiver()][i];
-          hint[i] = (c==null?-1:c.getValue())==a.getValue();
-        }
-        return Arrays.equals(hint, a.getHintedCards());
+        if(hints==0 || a.hintee() <0 || a.hintee()>=players.length || a.hintee() == a.getPlayer()) return false; 
+        return a.hintLength()==hands[a.hintee()].length && a.hintMask()==valueMask(a.hintee(), a.value());
       default: return false;
     }
   }
+
+  //the cards in a hand with the given colour, as a bitmask. Empty slots only match a null colour.
+  private int colourMask(int player, Colour colour){
+    Card[] hand = hands[player];
+    int mask = 0;
+    for(int i = 0; i<hand.length; i++)
+      if((hand[i]==null?null:hand[i].getColour())==colour) mask |= 1<<i;
+    return mask;
+  }
+
+  //the cards in a hand with the given value, as a bitmask. Empty slots only match the value -1.
+  private int valueMask(int player, int value){
+    Card[] hand = hands[player];
+    int mask = 0;
+    for(int i = 0; i<hand.length; i++)
+      if((hand[i]==null?-1:hand[i].getValue())==value) mask |= 1<<i;
+    return mask;
+  }
   
   /**
    * Gives and array of all the player names in the game.
@@ -185,6 +403,24 @@ public class State implements Cloneable{
     return hands[player].clone();
   }
 
+  /**
+   * Gives the number of players in the game, without copying the array of names.
+   * @return the number of players
+   **/
+  public int getPlayerCount(){return players.length;}
+
+  /**
+   * Gives a read only view of the cards of the specified player, without copying the hand.
+   * @param player the index of the player is the game
+   * @return an unmodifiable list of the cards in player's hand, with null for each card if the cards are hidden.
+   * @throws ArrayIndexOutOfBounds if there is no player of the given index.
+   **/
+  public List<Card> handView(int player)throws ArrayIndexOutOfBoundsException{
+    if(player<0 || player>=players.length) throw new ArrayIndexOutOfBoundsException();
+    if(player==observer) return Collections.nCopies(hands[player].length, (Card)null);
+    return Collections.unmodifiableList(Arrays.asList(hands[player]));
+  }
+
   /**
    * Gives a players name
    * @return the name of the specified player
@@ -193,32 +429,68 @@ public class State implements Cloneable{
 
   /**
    * Gives the previous state of the game, allowing agents to determine the recent actions in the game.
-   * @return the previous state, with the same observer as the current state.
+   * Previous states are not kept, so the previous state is rebuilt from this state and the action log each time it is asked for.
+   * @return the previous state, with the same observer as the current state, or null if this is the first state known.
    **/
   public State getPreviousState(){
-    State s = previousState;
-    s.observer = observer;
-    return s;
+    if(!log.contains(order-1)) return null;
+    try{return undo().observedBy(observer);}
+    catch(IllegalActionException e){throw new IllegalStateException(e);}//only legal actions are logged
+  }
+
+  /**
+   * Tests if this state was reached from another state of the same game, so agents that keep information
+   * between turns can tell when they have been given a new game.
+   * @param other the earlier state, which may be null
+   * @return true if other is this state or an earlier state on the same line of play as this state
+   **/
+  public boolean follows(State other){
+    return other!=null && other.log==log && other.order<=order;
   }
 
   /**
    * Gets the last action performed in the game, before this state was reached
    * @return the last action performed prior to this state.
    **/
-  public Action getPreviousAction(){return previousAction;}
+  public Action getPreviousAction(){return log.get(order-1);}
 
 
   /**
-   * Gets the last action performed in the game, by the specified player
+   * Gets the last action performed in the game, by the specified player.
+   * Players move in turn, so the action is found directly in the game's action log.
    * @return the last action performed by the given player, prior to this state.
    * @throws ArrayIndexOUtOfBoundsException if the specified player has not yet performed an action
    **/
   public Action getPreviousAction(int player){
-    State s = this;
-    while(s!=null && s.previousAction !=null && s.previousAction.getPlayer()!=player)
-      s = s.previousState;
-    if(s==null || s.previousAction==null) throw new ArrayIndexOutOfBoundsException("Player has not played yet");
-    else return s.previousAction;
+    int last = order-1;
+    if(player<0 || player>=players.length || last<player) throw new ArrayIndexOutOfBoundsException("Player has not played yet");
+    int index = last-(last-player)%players.length;
+    if(!log.contains(index)) throw new ArrayIndexOutOfBoundsException("Player has not played yet");
+    return log.get(index);
+  }
+
+  /**
+   * Gets an action performed before this state was reached.
+   * @param index the index of the action, where the first action of the game has index 0, and the last is getOrder()-1
+   * @return the action with that index
+   * @throws ArrayIndexOutOfBoundsException if the index is not before this state, or the action is not known
+   **/
+  public Action getAction(int index){
+    if(index<0 || index>=order || !log.contains(index)) throw new ArrayIndexOutOfBoundsException("No action with index "+index);
+    return log.get(index);
+  }
+
+  /**
+   * Gets the most recent actions performed before this state was reached, without walking back through previous states.
+   * @param k the number of actions wanted
+   * @return the last k actions (or fewer, if fewer are known) in the order they were performed
+   **/
+  public Action[] getPreviousActions(int k){
+    int from = Math.max(order-k, 0);
+    while(from<order && !log.contains(from)) from++;
+    Action[] actions = new Action[order-from];
+    for(int i = from; i<order; i++) actions[i-from] = log.get(i);
+    return actions;
   }
 
   /**
@@ -229,10 +501,7 @@ public class State implements Cloneable{
    * or null if there is no previous action, or the action was a hint.
    * */
   public Card previousCardPlayed(){
-    try{
-      return previousState.getHand(previousAction.getPlayer())[previousAction.getCard()];
-    }
-    catch(Exception e){return null;}
+    return log.getCard(order-1);
   }
 
 
@@ -240,13 +509,41 @@ public class State implements Cloneable{
    * Gets a clone of the discard stack
    * @return a clone of the discard stack
    **/
-  public Stack<Card> getDiscards(){return (Stack<Card>) discards.clone();}
+  public Stack<Card> getDiscards(){
+    Stack<Card> pile = new Stack<Card>();
+    if(discards==null) return pile;
+    pile.setSize(discards.size);
+    for(Discard d = discards; d!=null; d = d.below) pile.set(d.size-1, d.card);
+    return pile;
+  }
 
   /**
    * Get the stack of cards representing the specified firework
    * @return a clone of the stack of cards representing the firework of the given colour. The highest card is at the top of the stack.
    **/
-  public Stack<Card> getFirework(Colour c){return (Stack<Card>) fireworks.get(c).clone();}
+  public Stack<Card> getFirework(Colour c){
+    Stack<Card> firework = new Stack<Card>();
+    for(int v = 1; v<=fireworks[c.ordinal()]; v++) firework.push(Card.of(c,v));
+    return firework;
+  }
+
+  /**
+   * Get the height of the specified firework, without copying it.
+   * @return the number of cards in the firework of the given colour, which is also the value of its highest card
+   **/
+  public int getFireworkHeight(Colour c){return fireworks[c.ordinal()];}
+
+  /**
+   * Get the number of copies of a card in the discard pile, without copying the pile.
+   * @param c the colour of the card
+   * @param value the value of the card, from 1 to 5
+   * @return the number of copies of the card that have been discarded or misplayed
+   * @throws ArrayIndexOutOfBoundsException if the value is out of range
+   **/
+  public int getDiscardCount(Colour c, int value){
+    if(value<1 || value>5) throw new ArrayIndexOutOfBoundsException("No card with value "+value);
+    return discardCounts[Card.of(c,value).code()];
+  }
 
   /**
    * Get the number of hint tokens available
@@ -292,39 +589,27 @@ public class State implements Cloneable{
   public int getFinalActionIndex(){return finalAction;} 
 
   /**
-   * Get the current score
+   * Get the current score.
+   * The score is kept up to date as cards are played, so this does not examine the fireworks.
    * @return the sum of the highest value cards in each firework
    **/
-  public int getScore(){
-    int score = 0;
-    if(fuse==0) return 0;
-    for(Colour c: Colour.values()) 
-      if(!fireworks.get(c).isEmpty())score+=fireworks.get(c).peek().getValue();
-    return score;
-  }
+  public int getScore(){return (fuse==0?0:score);}
 
   /**
    * Tests if the game is over
    * @return true if all fireworks have been made, the deck has run out, or a fues has exploded.
    **/
   public boolean gameOver(){
-    return (order==finalAction || fuse == 0 || getScore()==25);
+    return (order==finalAction || fuse == 0 || score==25);
   }
 
   /**
-   * Produces a clone of the state
+   * Produces a clone of the state.
+   * The players, hands, fireworks and discards are never modified once a state is made, 
+   * so the clone shares them with this state, and a transition copies only the parts it changes.
    **/
   public Object clone(){
-    try{
-      State s = (State) super.clone();
-      s.players = players.clone();
-      s.discards = (Stack<Card>)discards.clone();
-      s.hands = (Card[][]) hands.clone();
-      for(int i = 0; i<hands.length; i++) s.hands[i] = (Card[])s.hands[i].clone();
-      s.fireworks = (Map<Colour,Stack<Card>>)((HashMap)fireworks).clone();
-      for(Colour c: Colour.values()) s.fireworks.put(c,(Stack<Card>)fireworks.get(c).clone());
-      return s;
-    }
+    try{return super.clone();}
     catch(CloneNotSupportedException e){return null;}
   }
 
@@ -335,22 +620,20 @@ public class State implements Cloneable{
    * and the last action.
    * */
   public String toString(){
-    String ret = "State: "+order+"\n";
-    ret+="Last move: "+previousAction+"\n";
-    ret+="Players' hands:\n";
+    StringBuilder ret = new StringBuilder(256);
+    ret.append("State: ").append(order).append("\n");
+    ret.append("Last move: ").append(getPreviousAction()).append("\n");
+    ret.append("Players' hands:\n");
     for(int i = 0; i<players.length; i++){
-      ret+=players[i]+" ("+i+"): ";
-      for(Card c: hands[i])ret+=c+" ";
-      ret+="\n";
+      ret.append(players[i]).append(" (").append(i).append("): ");
+      for(Card c: hands[i])ret.append(c).append(" ");
+      ret.append("\n");
     }
-    ret+="Fireworks:\n";
+    ret.append("Fireworks:\n");
     for(Colour c: Colour.values())
-      ret+=c+"  "+(fireworks.get(c).isEmpty()? "-" : fireworks.get(c).peek()) +"\n";
-    ret+= "Hints: "+hints+"\nFuse: "+fuse+"\n";
-    return ret;
+      ret.append(c).append("  ").append(fireworks[c.ordinal()]==0? "-" : Card.of(c,fireworks[c.ordinal()])).append("\n");
+    ret.append("Hints: ").append(hints).append("\nFuse: ").append(fuse).append("\n");
+    return ret.toString();
   }
 
 }
-
-
-
@@ -0,0 +1,319 @@
+package hanabAI;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class for running many independent games of Hanabi across all available cores.
+ * The range of games is split recursively over a work stealing pool, 
+ * every game gets a fresh set of agents from the factory on the worker that plays it,
+ * game g is dealt from the deck with seed getSeed()+g, so any game can be replayed on its own,
+ * and each worker keeps its own score statistics which are merged as the tasks join.
+ **/
+public class Tournament{
+
+  /**The smallest number of games a task will split**/
+  private static final int MIN_SPLIT = 8;
+
+  private AgentFactory factory;
+  private int players;
+  private int games;
+  private int parallelism;
+  private long seed;
+  private GameListener listener;
+  private int batchSize = 1;
+  private GameMetrics metrics;
+  private long moveLimit;
+  private MoveTimer timer;
+
+  /**
+   * Creates a tournament using every available processor.
+   * @param factory creates the agents for each game
+   * @param players the number of players in each game, between 2 and 5
+   * @param games the number of games to play
+   * @throws IllegalArgumentException if the number of players or games is out of range
+   **/
+  public Tournament(AgentFactory factory, int players, int games) throws IllegalArgumentException{
+    this(factory, players, games, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a tournament.
+   * @param factory creates the agents for each game
+   * @param players the number of players in each game, between 2 and 5
+   * @param games the number of games to play
+   * @param parallelism the number of worker threads to use
+   * @throws IllegalArgumentException if any parameter is out of range
+   **/
+  public Tournament(AgentFactory factory, int players, int games, int parallelism) throws IllegalArgumentException{
+    if(factory==null || players<2 || players>5 || games<0 || parallelism<1)
+      throw new IllegalArgumentException("incorrect parameters");
+    this.factory = factory;
+    this.players = players;
+    this.games = games;
+    this.parallelism = parallelism;
+    this.seed = new java.util.SplittableRandom().nextLong();
+  }
+
+  /**
+   * Sets the seed of the first game. Game g is dealt from the deck with seed seed+g,
+   * so tournaments over disjoint seed ranges can be run on different machines and merged.
+   * @param seed the seed of the first game
+   **/
+  public void setSeed(long seed){this.seed = seed;}
+
+  /**
+   * Sets a listener to receive the events of every game, numbered by the seed of the game's deck.
+   * Games are played on several threads, so the listener must be thread safe.
+   * @param listener the listener, or null for no listener
+   **/
+  public void setListener(GameListener listener){this.listener = listener;}
+
+  /**
+   * Sets the metrics to record the time and allocation of every move to.
+   * @param metrics the metrics, or null to record nothing
+   **/
+  public void setMetrics(GameMetrics metrics){this.metrics = metrics;}
+
+  /**
+   * Sets a time limit on every move, enforced by a MoveTimer shared by all the games.
+   * Agents that miss the deadline have the timer's fallback move made for them.
+   * A call to a BatchAgent chooses the moves of many games and cannot be held to a per move deadline,
+   * so run throws an IllegalStateException if a limit is set and the factory seats a BatchAgent with a batch size above one.
+   * @param limit the time allowed for each move, or 0 for no limit
+   * @param unit the unit of the limit
+   * @throws IllegalArgumentException if the limit is negative
+   **/
+  public void setMoveTimeLimit(long limit, TimeUnit unit) throws IllegalArgumentException{
+    if(limit<0) throw new IllegalArgumentException("limit must not be negative");
+    this.moveLimit = unit.toNanos(limit);
+  }
+
+  /**
+   * Sets the number of games each worker plays in lockstep.
+   * With a batch size above one, a worker deals a batch of games and repeatedly collects the pending move of every game,
+   * grouped by seat, so that a BatchAgent is asked for all of its moves in a single call.
+   * A BatchAgent is created once per seat for each batch and sits in that seat in every game of the batch,
+   * while other agents are still created for each game and move exactly as they would in a game played alone.
+   * If the factory creates no BatchAgent, the games of each batch are simply played one after another.
+   * @param batchSize the most games a worker plays together, where 1 plays each game in turn
+   * @throws IllegalArgumentException if the batch size is less than 1
+   **/
+  public void setBatchSize(int batchSize) throws IllegalArgumentException{
+    if(batchSize<1) throw new IllegalArgumentException("batch size must be at least 1");
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Gets the seed of the first game, which is random unless setSeed has been called.
+   * @return the seed of the first game
+   **/
+  public long getSeed(){return seed;}
+
+  /**
+   * Plays every game of the tournament, and blocks until they are all complete.
+   * Games where an agent made an illegal move or threw an exception are counted as failures, with their seeds.
+   * @return the merged statistics of all games
+   * @throws IllegalStateException if a move time limit is set and a BatchAgent is seated in lockstep play
+   **/
+  public ScoreStats run() throws IllegalStateException{
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    //spare threads let games go on when agents ignore the interrupt after missing a deadline
+    if(moveLimit>0) timer = new MoveTimer(moveLimit, TimeUnit.NANOSECONDS, parallelism*2);
+    try{
+      int threshold = batchSize>1?batchSize:Math.max(MIN_SPLIT, games/(parallelism*16));
+      return pool.invoke(new Games(0, games, threshold));
+    }
+    finally{
+      pool.shutdown();
+      if(timer!=null) timer.close();
+      timer = null;
+    }
+  }
+
+  /**
+   * Plays a single game with fresh agents from the factory.
+   * An agent that throws a RuntimeException fails its own game, as an illegal move does, and the other games go on.
+   * @param game the index of the game in the tournament
+   * @return the score of the game, or -1 if an agent made an illegal move or threw an exception
+   **/
+  protected int playGame(int game){
+    Agent[] agents = new Agent[players];
+    for(int i = 0; i<players; i++) agents[i] = factory.create(i, players);
+    return play(game, agents);
+  }
+
+  //plays a game alone with the given agents, failing it if an agent throws
+  private int play(int game, Agent[] agents){
+    Hanabi hanabi = new Hanabi(agents, seed+game);
+    hanabi.setMetrics(metrics);
+    if(timer!=null) hanabi.setMoveTimer(timer);
+    try{return listener==null?hanabi.play():hanabi.play(listener, seed+game);}
+    catch(RuntimeException e){
+      if(listener!=null) listener.gameEnded(seed+game, hanabi.getState(), -1);
+      return -1;
+    }
+  }
+
+  /**
+   * Plays a range of games in lockstep, in rounds where each seat in turn moves in every game where it is next to play.
+   * A BatchAgent is asked for all its moves of a round in one call, while other agents move one game at a time, as in playGame.
+   * If no seat holds a BatchAgent, the games are played one after another instead.
+   * An agent that throws fails the games it was deciding, and the other games go on.
+   * @param from the index of the first game in the batch
+   * @param to the index after the last game in the batch
+   * @return the statistics of the games in the batch
+   * @throws IllegalStateException if a BatchAgent is seated and a move time limit is set
+   **/
+  protected ScoreStats playBatch(int from, int to) throws IllegalStateException{
+    ScoreStats stats = new ScoreStats();
+    Agent[] first = new Agent[players];
+    BatchAgent[] shared = new BatchAgent[players];
+    boolean batched = false;
+    for(int i = 0; i<players; i++){
+      first[i] = factory.create(i, players);
+      if(first[i] instanceof BatchAgent){
+        shared[i] = (BatchAgent)first[i];
+        batched = true;
+      }
+    }
+    if(!batched){
+      for(int g = from; g<to; g++){
+        int score = g==from?play(g, first):playGame(g);
+        if(score<0) stats.addFailure(seed+g);
+        else stats.add(score);
+      }
+      return stats;
+    }
+    if(timer!=null) throw new IllegalStateException("a move time limit cannot be enforced on a BatchAgent");
+    int n = to-from;
+    Hanabi[] hanabi = new Hanabi[n];
+    for(int g = 0; g<n; g++){
+      Agent[] agents = first;
+      if(g>0){
+        agents = new Agent[players];
+        for(int i = 0; i<players; i++) agents[i] = shared[i]!=null?shared[i]:factory.create(i, players);
+      }
+      hanabi[g] = new Hanabi(agents, seed+from+g);
+      hanabi[g].setMetrics(metrics);
+      if(listener!=null) listener.gameStarted(seed+from+g, hanabi[g].getState(), hanabi[g].getDeck());
+    }
+    int[] live = new int[n];
+    for(int g = 0; g<n; g++) live[g] = g;
+    int count = n;
+    int[] pending = new int[n];
+    long[] ids = new long[n];
+    State[] states = new State[n];
+    Action[] actions = new Action[n];
+    while(count>0){
+      for(int p = 0; p<players; p++){
+        int k = 0;
+        for(int i = 0; i<count; i++){
+          int g = live[i];
+          if(hanabi[g]!=null && hanabi[g].getState().getNextPlayer()==p) pending[k++] = g;
+        }
+        if(k==0) continue;
+        for(int i = 0; i<k; i++) ids[i] = seed+from+pending[i];
+        if(shared[p]==null){
+          for(int i = 0; i<k; i++){
+            Hanabi h = hanabi[pending[i]];
+            int score = -1;
+            try{
+              if(!h.step(listener, ids[i])) continue;
+              score = h.getState().getScore();
+            }
+            catch(IllegalActionException | RuntimeException e){score = -1;}
+            finish(h, ids[i], score, shared, stats);
+            hanabi[pending[i]] = null;
+          }
+          continue;
+        }
+        long bytes = metrics==null?0:metrics.allocatedBytes();
+        for(int i = 0; i<k; i++){
+          long t = metrics==null?0:System.nanoTime();
+          try{states[i] = hanabi[pending[i]].getLocalState();}
+          catch(IllegalActionException e){throw new IllegalStateException(e);}//pending games are never over
+          if(metrics!=null) metrics.recordHideHand(System.nanoTime()-t);
+        }
+        if(metrics!=null){
+          long b = metrics.allocatedBytes();
+          metrics.recordGameBytes(b-bytes);
+          bytes = b;
+        }
+        long t = metrics==null?0:System.nanoTime();
+        boolean failed = false;
+        try{shared[p].doActions(ids, states, actions, k);}
+        catch(RuntimeException e){failed = true;}
+        if(metrics!=null) metrics.recordBatch(shared[p].toString(), System.nanoTime()-t, metrics.allocatedBytes()-bytes, k);
+        for(int i = 0; i<k; i++){
+          Hanabi h = hanabi[pending[i]];
+          int score = -1;
+          if(!failed){
+            try{
+              if(metrics!=null){
+                bytes = metrics.allocatedBytes();
+                t = System.nanoTime();
+              }
+              boolean over = h.move(actions[i]);
+              if(metrics!=null){
+                metrics.recordNextState(System.nanoTime()-t);
+                metrics.recordGameBytes(metrics.allocatedBytes()-bytes);
+              }
+              if(listener!=null) listener.moveMade(ids[i], actions[i], h.getState());
+              if(!over) continue;
+              score = h.getState().getScore();
+            }
+            catch(IllegalActionException e){score = -1;}
+          }
+          finish(h, ids[i], score, shared, stats);
+          hanabi[pending[i]] = null;
+        }
+        java.util.Arrays.fill(states, 0, k, null);
+        java.util.Arrays.fill(actions, 0, k, null);
+      }
+      int remaining = 0;
+      for(int i = 0; i<count; i++) if(hanabi[live[i]]!=null) live[remaining++] = live[i];
+      count = remaining;
+    }
+    return stats;
+  }
+
+  //records the end of a game played in lockstep, and releases the batch agents' memory of it
+  private void finish(Hanabi hanabi, long game, int score, BatchAgent[] shared, ScoreStats stats){
+    if(score<0) stats.addFailure(game);
+    else stats.add(score);
+    if(listener!=null) listener.gameEnded(game, hanabi.getState(), score);
+    for(BatchAgent a: shared) if(a!=null) a.gameEnded(game);
+  }
+
+  //plays the games in [from,to), splitting the range until it is below the threshold
+  private class Games extends RecursiveTask<ScoreStats>{
+    private static final long serialVersionUID = 1L;
+    private int from, to, threshold;
+
+    Games(int from, int to, int threshold){
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+
+    protected ScoreStats compute(){
+      if(to-from<=threshold && batchSize>1) return playBatch(from, to);
+      if(to-from<=threshold){
+        ScoreStats stats = new ScoreStats();
+        for(int g = from; g<to; g++){
+          int score = playGame(g);
+          if(score<0) stats.addFailure(seed+g);
+          else stats.add(score);
+        }
+        return stats;
+      }
+      int mid = (from+to)>>>1;
+      Games left = new Games(from, mid, threshold);
+      left.fork();
+      ScoreStats right = new Games(mid, to, threshold).compute();
+      return right.merge(left.join());
+    }
+  }
+}